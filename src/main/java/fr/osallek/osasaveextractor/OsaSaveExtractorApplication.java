@@ -1,10 +1,14 @@
 package fr.osallek.osasaveextractor;
 
 import javafx.application.Application;
+import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
 @SpringBootApplication
@@ -12,6 +16,10 @@ public class OsaSaveExtractorApplication {
 
     public static final String ID;
 
+    public static final String HEADLESS = "headless";
+
+    public static final String BENCHMARK = "benchmark";
+
     static {
         //Todo change to save in properties to allow change
         String id1;
@@ -26,7 +34,16 @@ public class OsaSaveExtractorApplication {
     }
 
     public static void main(String[] args) {
-        Application.launch(OsaSaveExtractorUiApplication.class, args);
+        List<String> arguments = Arrays.asList(args);
+
+        if (arguments.contains("--" + BENCHMARK)) {
+            System.exit(SpringApplication.exit(new SpringApplicationBuilder(OsaSaveExtractorApplication.class).profiles(HEADLESS, BENCHMARK).run(args)));
+        } else if (arguments.contains("--" + HEADLESS)) {
+            //Never touches the JavaFX toolkit, only the command line controller is started
+            System.exit(SpringApplication.exit(new SpringApplicationBuilder(OsaSaveExtractorApplication.class).profiles(HEADLESS).run(args)));
+        } else {
+            Application.launch(OsaSaveExtractorUiApplication.class, args);
+        }
     }
 
 }
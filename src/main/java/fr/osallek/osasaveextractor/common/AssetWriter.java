@@ -0,0 +1,52 @@
+package fr.osallek.osasaveextractor.common;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import javax.imageio.ImageIO;
+
+public final class AssetWriter {
+
+    private AssetWriter() {
+    }
+
+    /**
+     * Encodes the image as PNG while hashing it, then writes it once to {@code folder/<checksum>.png}.
+     *
+     * @return The path of the written file
+     */
+    public static Path writePng(BufferedImage image, Path folder) throws IOException {
+        MessageDigest md;
+
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        try (DigestOutputStream stream = new DigestOutputStream(buffer, md)) {
+            if (!ImageIO.write(image, "PNG", stream)) {
+                throw new IOException("No PNG writer available");
+            }
+        }
+
+        Path file = folder.resolve(Constants.bytesToHex(md.digest()) + ".png");
+
+        try {
+            Files.write(file, buffer.toByteArray(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (FileAlreadyExistsException ignored) {
+            //Same content already written
+        }
+
+        return file;
+    }
+}
@@ -5,7 +5,9 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.MessageDigest;
 import java.util.Optional;
 import java.util.regex.Pattern;
@@ -46,6 +48,13 @@ public final class Constants {
         }
 
         try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            Optional<String> cached = FileChecksumCache.get(path, attributes);
+
+            if (cached.isPresent()) {
+                return cached;
+            }
+
             MessageDigest md = MessageDigest.getInstance("SHA-256");
 
             try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(path.toFile()))) {
@@ -57,7 +66,10 @@ public final class Constants {
                 }
             }
 
-            return Optional.of(bytesToHex(md.digest()));
+            String checksum = bytesToHex(md.digest());
+            FileChecksumCache.put(path, attributes, checksum);
+
+            return Optional.of(checksum);
         } catch (Exception e) {
             LOGGER.error("Could not get hash of {}: {}", path.getFileName(), e.getMessage(), e);
             return Optional.empty();
@@ -0,0 +1,103 @@
+package fr.osallek.osasaveextractor.common;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public final class FileChecksumCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileChecksumCache.class);
+
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    private FileChecksumCache() {
+    }
+
+    public static Optional<String> get(Path path, BasicFileAttributes attributes) {
+        Entry entry = ENTRIES.get(path.toAbsolutePath().toString());
+
+        if (entry == null || !entry.matches(attributes)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(entry.checksum());
+    }
+
+    public static void put(Path path, BasicFileAttributes attributes, String checksum) {
+        ENTRIES.put(path.toAbsolutePath().toString(), new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(),
+                                                                String.valueOf(attributes.fileKey()), checksum));
+    }
+
+    public static void load(Path file) {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", 5);
+
+                if (parts.length == 5) {
+                    ENTRIES.putIfAbsent(parts[0], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3], parts[4]));
+                }
+            }
+
+            LOGGER.info("Loaded {} file checksums from {}", ENTRIES.size(), file);
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.warn("Could not read checksums cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    //Called when analyses complete, which can happen at the same time, and the file is read on next start so it is never left half written
+    public static synchronized void save(Path file) {
+        Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try {
+            FileUtils.forceMkdirParent(file.toFile());
+
+            try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Entry> entry : ENTRIES.entrySet()) {
+                    if (!Files.exists(Path.of(entry.getKey()))) { //Temporary files
+                        ENTRIES.remove(entry.getKey());
+                        continue;
+                    }
+
+                    writer.write(entry.getKey() + '\t' + entry.getValue().size() + '\t' + entry.getValue().lastModified() + '\t'
+                                 + entry.getValue().fileKey() + '\t' + entry.getValue().checksum());
+                    writer.newLine();
+                }
+            }
+
+            try {
+                Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not write checksums cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    private record Entry(long size, long lastModified, String fileKey, String checksum) {
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return this.size == attributes.size() && this.lastModified == attributes.lastModifiedTime().toMillis()
+                   && Objects.equals(this.fileKey, String.valueOf(attributes.fileKey()));
+        }
+    }
+}
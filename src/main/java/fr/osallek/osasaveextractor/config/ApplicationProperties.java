@@ -1,7 +1,15 @@
 package fr.osallek.osasaveextractor.config;
 
+import fr.osallek.eu4parser.model.game.localisation.Eu4Language;
+import fr.osallek.osasaveextractor.service.object.server.UploadEncoding;
+import fr.osallek.osasaveextractor.service.object.server.UploadFormat;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
 @Configuration
 @ConfigurationProperties(prefix = "application")
@@ -9,6 +17,52 @@ public class ApplicationProperties {
 
     private String serverUrl;
 
+    private Path dataFolder;
+
+    private Path installationFolder;
+
+    private boolean preloadGame = true;
+
+    private Duration connectTimeout = Duration.ofSeconds(10);
+
+    private Duration savesTimeout = Duration.ofSeconds(30);
+
+    private Duration dataTimeout = Duration.ofHours(1);
+
+    private Duration assetsTimeout = Duration.ofHours(1);
+
+    private int assetsUploadParts = 1;
+
+    private int retryMaxAttempts = 4;
+
+    private Duration retryInitialDelay = Duration.ofSeconds(1);
+
+    private Duration retryMaxDelay = Duration.ofSeconds(30);
+
+    private int parsedGamesKept = 2;
+
+    private DataSize batchSaveMemory = DataSize.ofGigabytes(1);
+
+    private DataSize imagesStoreSize = DataSize.ofMegabytes(256);
+
+    private boolean watchSaves = true;
+
+    private Duration watchDebounce = Duration.ofSeconds(10);
+
+    private boolean autoAnalyse = false;
+
+    private Path dataDumpFile;
+
+    private boolean deltaUpload = false;
+
+    private UploadFormat uploadFormat = UploadFormat.JSON;
+
+    private UploadEncoding uploadEncoding = UploadEncoding.IDENTITY;
+
+    private boolean sharedLocalisations = true;
+
+    private Set<Eu4Language> languages = EnumSet.noneOf(Eu4Language.class);
+
     public String getServerUrl() {
         return serverUrl;
     }
@@ -16,4 +70,188 @@ public class ApplicationProperties {
     public void setServerUrl(String serverUrl) {
         this.serverUrl = serverUrl;
     }
+
+    public Path getDataFolder() {
+        return dataFolder;
+    }
+
+    public void setDataFolder(Path dataFolder) {
+        this.dataFolder = dataFolder;
+    }
+
+    public Path getInstallationFolder() {
+        return installationFolder;
+    }
+
+    public void setInstallationFolder(Path installationFolder) {
+        this.installationFolder = installationFolder;
+    }
+
+    public boolean isPreloadGame() {
+        return preloadGame;
+    }
+
+    public void setPreloadGame(boolean preloadGame) {
+        this.preloadGame = preloadGame;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getSavesTimeout() {
+        return savesTimeout;
+    }
+
+    public void setSavesTimeout(Duration savesTimeout) {
+        this.savesTimeout = savesTimeout;
+    }
+
+    public Duration getDataTimeout() {
+        return dataTimeout;
+    }
+
+    public void setDataTimeout(Duration dataTimeout) {
+        this.dataTimeout = dataTimeout;
+    }
+
+    public Duration getAssetsTimeout() {
+        return assetsTimeout;
+    }
+
+    public void setAssetsTimeout(Duration assetsTimeout) {
+        this.assetsTimeout = assetsTimeout;
+    }
+
+    public int getAssetsUploadParts() {
+        return assetsUploadParts;
+    }
+
+    public void setAssetsUploadParts(int assetsUploadParts) {
+        this.assetsUploadParts = assetsUploadParts;
+    }
+
+    public int getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    public void setRetryMaxAttempts(int retryMaxAttempts) {
+        this.retryMaxAttempts = retryMaxAttempts;
+    }
+
+    public Duration getRetryInitialDelay() {
+        return retryInitialDelay;
+    }
+
+    public void setRetryInitialDelay(Duration retryInitialDelay) {
+        this.retryInitialDelay = retryInitialDelay;
+    }
+
+    public Duration getRetryMaxDelay() {
+        return retryMaxDelay;
+    }
+
+    public void setRetryMaxDelay(Duration retryMaxDelay) {
+        this.retryMaxDelay = retryMaxDelay;
+    }
+
+    public int getParsedGamesKept() {
+        return parsedGamesKept;
+    }
+
+    public void setParsedGamesKept(int parsedGamesKept) {
+        this.parsedGamesKept = parsedGamesKept;
+    }
+
+    public DataSize getBatchSaveMemory() {
+        return batchSaveMemory;
+    }
+
+    public void setBatchSaveMemory(DataSize batchSaveMemory) {
+        this.batchSaveMemory = batchSaveMemory;
+    }
+
+    public DataSize getImagesStoreSize() {
+        return imagesStoreSize;
+    }
+
+    public void setImagesStoreSize(DataSize imagesStoreSize) {
+        this.imagesStoreSize = imagesStoreSize;
+    }
+
+    public boolean isWatchSaves() {
+        return watchSaves;
+    }
+
+    public void setWatchSaves(boolean watchSaves) {
+        this.watchSaves = watchSaves;
+    }
+
+    public Duration getWatchDebounce() {
+        return watchDebounce;
+    }
+
+    public void setWatchDebounce(Duration watchDebounce) {
+        this.watchDebounce = watchDebounce;
+    }
+
+    public boolean isAutoAnalyse() {
+        return autoAnalyse;
+    }
+
+    public void setAutoAnalyse(boolean autoAnalyse) {
+        this.autoAnalyse = autoAnalyse;
+    }
+
+    public Path getDataDumpFile() {
+        return dataDumpFile;
+    }
+
+    public void setDataDumpFile(Path dataDumpFile) {
+        this.dataDumpFile = dataDumpFile;
+    }
+
+    public boolean isDeltaUpload() {
+        return deltaUpload;
+    }
+
+    public void setDeltaUpload(boolean deltaUpload) {
+        this.deltaUpload = deltaUpload;
+    }
+
+    public UploadFormat getUploadFormat() {
+        return uploadFormat;
+    }
+
+    public void setUploadFormat(UploadFormat uploadFormat) {
+        this.uploadFormat = uploadFormat;
+    }
+
+    public UploadEncoding getUploadEncoding() {
+        return uploadEncoding;
+    }
+
+    public void setUploadEncoding(UploadEncoding uploadEncoding) {
+        this.uploadEncoding = uploadEncoding;
+    }
+
+    public boolean isSharedLocalisations() {
+        return sharedLocalisations;
+    }
+
+    public void setSharedLocalisations(boolean sharedLocalisations) {
+        this.sharedLocalisations = sharedLocalisations;
+    }
+
+    public Set<Eu4Language> getLanguages() {
+        return languages;
+    }
+
+    public void setLanguages(Set<Eu4Language> languages) {
+        this.languages = languages;
+    }
 }
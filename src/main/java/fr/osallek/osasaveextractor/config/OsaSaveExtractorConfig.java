@@ -1,13 +1,11 @@
 package fr.osallek.osasaveextractor.config;
 
+import java.net.http.HttpClient;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.ResourceBundleMessageSource;
-import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class OsaSaveExtractorConfig {
@@ -24,7 +22,10 @@ public class OsaSaveExtractorConfig {
     }
 
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder) {
-        return restTemplateBuilder.setReadTimeout(Duration.ofHours(1)).build();
+    public HttpClient httpClient(ApplicationProperties properties) {
+        return HttpClient.newBuilder()
+                         .version(HttpClient.Version.HTTP_2) //Falls back to HTTP/1.1 if the server does not support it
+                         .connectTimeout(properties.getConnectTimeout())
+                         .build();
     }
 }
@@ -1,5 +1,6 @@
 package fr.osallek.osasaveextractor.config;
 
+import fr.osallek.osasaveextractor.OsaSaveExtractorApplication;
 import fr.osallek.osasaveextractor.controller.MainController;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
@@ -8,9 +9,11 @@ import org.kordamp.bootstrapfx.BootstrapFX;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 @Component
+@Profile("!" + OsaSaveExtractorApplication.HEADLESS)
 public class StageInitializer implements ApplicationListener<StageReadyEvent> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(StageInitializer.class);
@@ -0,0 +1,186 @@
+package fr.osallek.osasaveextractor.controller;
+
+import fr.osallek.eu4parser.model.game.IdeaGroup;
+import fr.osallek.eu4parser.model.save.Save;
+import fr.osallek.osasaveextractor.OsaSaveExtractorApplication;
+import fr.osallek.osasaveextractor.common.Constants;
+import fr.osallek.osasaveextractor.config.ApplicationProperties;
+import fr.osallek.osasaveextractor.service.AssetService;
+import fr.osallek.osasaveextractor.service.Eu4Service;
+import fr.osallek.osasaveextractor.service.ServerService;
+import fr.osallek.osasaveextractor.service.object.save.SaveDTO;
+import fr.osallek.osasaveextractor.service.object.server.UploadEncoding;
+import fr.osallek.osasaveextractor.service.object.server.UploadFormat;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+@Component
+@Profile(OsaSaveExtractorApplication.BENCHMARK)
+public class BenchmarkController implements ApplicationRunner, ExitCodeGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BenchmarkController.class);
+
+    private static final int DEFAULT_ITERATIONS = 5;
+
+    //The vanilla aristocratic ideas, after the first uploads the server only asks for the few images it does not have yet, like a new group of a mod
+    private static final List<String> DEFAULT_IDEAS = List.of("noble_knights", "military_traditions", "local_nobility", "serfdom", "noble_officers",
+                                                              "international_nobility", "noble_resilience");
+
+    private final Eu4Service eu4Service;
+
+    private final AssetService assetService;
+
+    private final ServerService serverService;
+
+    private final ApplicationProperties properties;
+
+    private final AtomicInteger errors = new AtomicInteger(0);
+
+    public BenchmarkController(Eu4Service eu4Service, AssetService assetService, ServerService serverService, ApplicationProperties properties) {
+        this.eu4Service = eu4Service;
+        this.assetService = assetService;
+        this.serverService = serverService;
+        this.properties = properties;
+    }
+
+    //--benchmark --save=<path> [--iterations=<n>] [--ideas=<idea>,<idea>], nothing is sent to the server
+    @Override
+    public void run(ApplicationArguments args) {
+        List<String> saves = args.getOptionValues("save");
+        List<String> iterations = args.getOptionValues("iterations");
+        List<String> ideas = args.getOptionValues("ideas");
+
+        if (CollectionUtils.isEmpty(saves)) {
+            LOGGER.error("No save to benchmark, usage: --benchmark --save=<path> [--iterations=<n>] [--ideas=<idea>,<idea>] "
+                         + "[--application.installation-folder=<path>]");
+            this.errors.incrementAndGet();
+            return;
+        }
+
+        Path save = Path.of(saves.get(0));
+
+        if (Files.exists(save)) {
+            save = save.toAbsolutePath(); //Otherwise relative to the saves folder
+        }
+
+        try {
+            Save parsed = this.eu4Service.loadSave(save);
+            //Images are not generated, their checksums are only a small part of the data
+            SaveDTO saveDTO = new SaveDTO(parsed, "", "", this.assetService.getReligions(parsed), this.properties.getLanguages(), value -> {});
+            saveDTO.compactLocalisations(this.properties.isSharedLocalisations());
+
+            benchmarkEncoding(saveDTO, CollectionUtils.isEmpty(iterations) ? DEFAULT_ITERATIONS : Math.max(1, Integer.parseInt(iterations.get(0))));
+            benchmarkIdeas(parsed, CollectionUtils.isEmpty(ideas) ? Set.copyOf(DEFAULT_IDEAS) : getIdeas(ideas));
+        } catch (Exception e) {
+            this.errors.incrementAndGet();
+            LOGGER.error("Could not benchmark {}: {}", save, e.getMessage(), e);
+        }
+    }
+
+    //The same save is encoded with each format and encoding, the first run of each only warms up
+    private void benchmarkEncoding(SaveDTO saveDTO, int iterations) throws Exception {
+        System.out.printf("%-8s %-10s %15s %12s %12s%n", "format", "encoding", "size (bytes)", "min (ms)", "avg (ms)");
+
+        for (UploadFormat format : UploadFormat.values()) {
+            for (UploadEncoding encoding : UploadEncoding.values()) {
+                long size = 0;
+                long min = Long.MAX_VALUE;
+                long total = 0;
+
+                for (int i = 0; i <= iterations; i++) {
+                    CountingOutputStream outputStream = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+                    long start = System.nanoTime();
+                    this.serverService.writeData(saveDTO, format, encoding, outputStream);
+                    long time = System.nanoTime() - start;
+
+                    if (i > 0) {
+                        size = outputStream.getByteCount();
+                        min = Math.min(min, time);
+                        total += time;
+                    }
+                }
+
+                System.out.printf("%-8s %-10s %15d %12d %12d%n", format, encoding, size, min / 1_000_000, total / iterations / 1_000_000);
+            }
+        }
+    }
+
+    //Before, the images of all the ideas of the game were converted, now only the ones the server asks for are
+    //Both are converted into an empty store and their checksums are computed beforehand, so only the conversion is measured
+    private void benchmarkIdeas(Save save, Set<String> requested) throws IOException {
+        Map<String, List<File>> images = new LinkedHashMap<>();
+        images.put("all", getIdeaImages(save, idea -> true));
+        images.put("requested", getIdeaImages(save, requested::contains));
+        images.get("all").forEach(Constants::getFileChecksum);
+
+        if (images.get("requested").size() < requested.size()) {
+            LOGGER.warn("Only {} of the {} requested ideas are in the game", images.get("requested").size(), requested.size());
+        }
+
+        Path store = Files.createTempDirectory("benchmark");
+
+        try {
+            System.out.printf("%-10s %12s %12s%n", "ideas", "images", "time (ms)");
+
+            for (Map.Entry<String, List<File>> entry : images.entrySet()) {
+                long start = System.nanoTime();
+                int converted = this.assetService.convertImages("modifiers", entry.getValue(), store.resolve(entry.getKey())).join().size();
+
+                System.out.printf("%-10s %12d %12d%n", entry.getKey(), converted, (System.nanoTime() - start) / 1_000_000);
+            }
+        } finally {
+            FileUtils.deleteQuietly(store.toFile());
+        }
+    }
+
+    private Set<String> getIdeas(List<String> values) {
+        return values.stream()
+                     .map(value -> value.split(","))
+                     .flatMap(Arrays::stream)
+                     .map(String::trim)
+                     .filter(StringUtils::isNotBlank)
+                     .collect(Collectors.toSet());
+    }
+
+    private List<File> getIdeaImages(Save save, Predicate<String> filter) {
+        return save.getGame()
+                   .getIdeaGroups()
+                   .stream()
+                   .map(IdeaGroup::getIdeas)
+                   .filter(MapUtils::isNotEmpty)
+                   .map(Map::entrySet)
+                   .flatMap(Collection::stream)
+                   .filter(entry -> filter.test(entry.getKey()))
+                   .map(entry -> entry.getValue().getImage(save.getGame()))
+                   .toList();
+    }
+
+    @Override
+    public int getExitCode() {
+        return this.errors.get() > 0 ? 1 : 0;
+    }
+}
@@ -0,0 +1,98 @@
+package fr.osallek.osasaveextractor.controller;
+
+import fr.osallek.osasaveextractor.OsaSaveExtractorApplication;
+import fr.osallek.osasaveextractor.service.BatchService;
+import fr.osallek.osasaveextractor.service.Eu4Service;
+import fr.osallek.osasaveextractor.service.object.AnalysisJob;
+import fr.osallek.osasaveextractor.service.object.BatchJob;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.collections4.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+@Component
+@Profile(OsaSaveExtractorApplication.HEADLESS + " & !" + OsaSaveExtractorApplication.BENCHMARK)
+public class CommandLineController implements ApplicationRunner, ExitCodeGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandLineController.class);
+
+    private final Eu4Service eu4Service;
+
+    private final BatchService batchService;
+
+    private final AtomicInteger errors = new AtomicInteger(0);
+
+    public CommandLineController(Eu4Service eu4Service, BatchService batchService) {
+        this.eu4Service = eu4Service;
+        this.batchService = batchService;
+    }
+
+    //--save=<path> [--previous=<id>] for each save, the installation folder can be forced with --application.installation-folder=<path>
+    //With --chain the saves are analysed as a batch, each one linked to the previous one and the first one to --previous
+    @Override
+    public void run(ApplicationArguments args) {
+        List<String> saves = args.getOptionValues("save");
+        List<String> previousSaves = args.getOptionValues("previous");
+
+        if (CollectionUtils.isEmpty(saves)) {
+            LOGGER.error("No save to analyse, usage: --headless --save=<path> [--previous=<id>] [--chain] [--application.installation-folder=<path>]");
+            this.errors.incrementAndGet();
+            return;
+        }
+
+        if (args.containsOption("chain")) {
+            runBatch(saves, CollectionUtils.isEmpty(previousSaves) ? null : previousSaves.get(0));
+            return;
+        }
+
+        for (int i = 0; i < saves.size(); i++) {
+            Path save = Path.of(saves.get(i));
+            String previousSave = previousSaves != null && i < previousSaves.size() ? previousSaves.get(i) : null;
+
+            if (Files.exists(save)) {
+                save = save.toAbsolutePath(); //Otherwise relative to the saves folder
+            }
+
+            try {
+                Path toAnalyse = save;
+                this.eu4Service.parseSave(save, previousSave, error -> LOGGER.error("Error while analysing {}: {}", toAnalyse, error)).join();
+
+                if (this.eu4Service.getState().isError()) {
+                    this.errors.incrementAndGet();
+                } else {
+                    System.out.println(this.eu4Service.getState().getLink());
+                }
+            } catch (Exception e) {
+                this.errors.incrementAndGet();
+                LOGGER.error("Could not analyse {}: {}", save, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void runBatch(List<String> saves, String previousSave) {
+        BatchJob batchJob = this.batchService.submit(saves.stream().map(Path::of).map(save -> Files.exists(save) ? save.toAbsolutePath() : save).toList(),
+                                                     previousSave, true);
+
+        for (AnalysisJob job : batchJob.jobs()) {
+            try {
+                System.out.println(job.result().join().link());
+            } catch (Exception e) {
+                this.errors.incrementAndGet();
+                LOGGER.error("Could not analyse {}: {}", job.save(), e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public int getExitCode() {
+        return this.errors.get() > 0 ? 1 : 0;
+    }
+}
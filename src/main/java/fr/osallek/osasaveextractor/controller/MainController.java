@@ -8,6 +8,7 @@ import fr.osallek.osasaveextractor.controller.object.BootstrapPane;
 import fr.osallek.osasaveextractor.controller.object.BootstrapRow;
 import fr.osallek.osasaveextractor.controller.object.LocalSaveListCell;
 import fr.osallek.osasaveextractor.service.Eu4Service;
+import fr.osallek.osasaveextractor.service.SaveWatcherService;
 import fr.osallek.osasaveextractor.service.ServerService;
 import fr.osallek.osasaveextractor.service.object.server.ServerSave;
 import java.io.IOException;
@@ -41,12 +42,18 @@ import javafx.scene.text.Text;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.kordamp.bootstrapfx.scene.layout.Panel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 @Component
+@Profile("!" + OsaSaveExtractorApplication.HEADLESS)
 public class MainController {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(MainController.class);
+
     private final Eu4Service eu4Service;
 
     private final ServerService serverService;
@@ -67,6 +74,8 @@ public class MainController {
 
     private VBox progressVBox;
 
+    private Panel localSavesPanel;
+
     private ComboBox<Path> localSavesBox;
 
     private AutoCompleteTextField<ServerSave> serverSavesField;
@@ -75,13 +84,15 @@ public class MainController {
 
     private final BooleanProperty loading = new SimpleBooleanProperty(false);
 
-    public MainController(Eu4Service eu4Service, ServerService serverService, MessageSource messageSource, Application application) throws IOException {
+    public MainController(Eu4Service eu4Service, ServerService serverService, SaveWatcherService saveWatcherService, MessageSource messageSource,
+                          Application application) throws IOException {
         this.eu4Service = eu4Service;
         this.serverService = serverService;
         this.messageSource = messageSource;
         this.application = application;
 
         prepareView();
+        saveWatcherService.addListener(save -> refreshLocalSaves());
     }
 
     private void prepareView() throws IOException {
@@ -123,31 +134,24 @@ public class MainController {
         idRow.addColumn(new BootstrapColumn(idPanel, new int[] {12, 12, 10, 8, 6}));
 
         BootstrapRow localSavesRow = new BootstrapRow(true);
-        Panel localSavesPanel = new Panel();
-        localSavesPanel.getStyleClass().add("panel-default");
+        this.localSavesPanel = new Panel();
+        this.localSavesPanel.getStyleClass().add("panel-default");
 
         Label localSavesTitleLabel = new Label(this.messageSource.getMessage("ose.local-saves", null,
                                                                              Locale.getDefault()));
         localSavesTitleLabel.getStyleClass().addAll("h5", "b");
-        localSavesPanel.setHeading(localSavesTitleLabel);
+        this.localSavesPanel.setHeading(localSavesTitleLabel);
 
-        List<Path> localSaves = this.eu4Service.getSaves();
+        this.localSavesBox = new ComboBox<>(FXCollections.observableArrayList());
+        localSavesBox.setVisibleRowCount(20);
+        localSavesBox.setCellFactory(param -> new LocalSaveListCell(this.eu4Service));
+        localSavesBox.setButtonCell(new LocalSaveListCell(this.eu4Service));
+        localSavesBox.setPromptText(this.messageSource.getMessage("ose.local-saves.choose", null,
+                                                                  Locale.getDefault()));
+        localSavesBox.disableProperty().bind(this.loading);
+        setLocalSaves(this.eu4Service.getSaves());
 
-        if (CollectionUtils.isNotEmpty(localSaves)) {
-            this.localSavesBox = new ComboBox<>(FXCollections.observableArrayList(localSaves));
-            localSavesBox.setVisibleRowCount(20);
-            localSavesBox.setCellFactory(param -> new LocalSaveListCell(this.eu4Service));
-            localSavesBox.setButtonCell(new LocalSaveListCell(this.eu4Service));
-            localSavesBox.setPromptText(this.messageSource.getMessage("ose.local-saves.choose", null,
-                                                                      Locale.getDefault()));
-            localSavesBox.disableProperty().bind(this.loading);
-            localSavesPanel.setBody(localSavesBox);
-        } else {
-            localSavesPanel.setBody(new Text(this.messageSource.getMessage("ose.saves.none", null,
-                                                                           Locale.getDefault())));
-        }
-
-        localSavesRow.addColumn(new BootstrapColumn(localSavesPanel, new int[] {12, 12, 10, 8, 6}));
+        localSavesRow.addColumn(new BootstrapColumn(this.localSavesPanel, new int[] {12, 12, 10, 8, 6}));
 
         BootstrapRow serverSavesRow = new BootstrapRow(true);
         Panel serverSavesPanel = new Panel();
@@ -256,6 +260,32 @@ public class MainController {
         this.root.addRow(progressRow);
     }
 
+    //Called by the watcher thread when a save has been written
+    private void refreshLocalSaves() {
+        try {
+            List<Path> localSaves = this.eu4Service.getSaves();
+            Platform.runLater(() -> setLocalSaves(localSaves));
+        } catch (IOException e) {
+            LOGGER.warn("Could not refresh local saves: {}", e.getMessage(), e);
+        }
+    }
+
+    private void setLocalSaves(List<Path> localSaves) {
+        Path selected = this.localSavesBox.getSelectionModel().getSelectedItem();
+        this.localSavesBox.getItems().setAll(localSaves);
+
+        if (selected != null && localSaves.contains(selected)) {
+            this.localSavesBox.getSelectionModel().select(selected);
+        }
+
+        if (CollectionUtils.isNotEmpty(localSaves)) {
+            this.localSavesPanel.setBody(this.localSavesBox);
+        } else {
+            this.localSavesPanel.setBody(new Text(this.messageSource.getMessage("ose.saves.none", null,
+                                                                                Locale.getDefault())));
+        }
+    }
+
     public GridPane getScene() {
         return this.root;
     }
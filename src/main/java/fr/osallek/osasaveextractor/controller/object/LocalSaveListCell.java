@@ -1,6 +1,7 @@
 package fr.osallek.osasaveextractor.controller.object;
 
 import fr.osallek.osasaveextractor.service.Eu4Service;
+import fr.osallek.osasaveextractor.service.object.SaveMetadata;
 import javafx.scene.control.ListCell;
 
 import java.nio.file.Path;
@@ -29,7 +30,13 @@ public class LocalSaveListCell extends ListCell<Path> {
                 strings.add(relativize.getName(i).toString());
             }
 
-            setText(String.join(" > ", strings));
+            //In game date read from the save header, when not a binary save
+            String date = this.eu4Service.getSaveMetadata(path)
+                                         .map(SaveMetadata::date)
+                                         .map(d -> " (" + d.getYear() + "." + d.getMonthValue() + "." + d.getDayOfMonth() + ")")
+                                         .orElse("");
+
+            setText(String.join(" > ", strings) + date);
         }
     }
 
@@ -0,0 +1,546 @@
+package fr.osallek.osasaveextractor.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.osallek.eu4parser.model.game.Game;
+import fr.osallek.eu4parser.model.game.Religion;
+import fr.osallek.eu4parser.model.save.Save;
+import fr.osallek.eu4parser.model.save.country.SaveCountry;
+import fr.osallek.osasaveextractor.common.AssetWriter;
+import fr.osallek.osasaveextractor.common.Constants;
+import fr.osallek.osasaveextractor.config.ApplicationProperties;
+import fr.osallek.osasaveextractor.service.object.GameKey;
+import fr.osallek.osasaveextractor.service.object.GeneratedAssets;
+import fr.osallek.osasaveextractor.service.object.server.AssetManifest;
+import fr.osallek.osasaveextractor.service.object.server.AssetsDTO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+@Service
+public class AssetService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AssetService.class);
+
+    private static final int NB_THREADS = Runtime.getRuntime().availableProcessors();
+
+    //Game assets are a few dozens, flags may be hundreds
+    private static final int GAME_ASSETS_PARALLELISM = Math.max(1, NB_THREADS / 4);
+
+    private static final int FLAGS_PARALLELISM = NB_THREADS;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(NB_THREADS, new CustomizableThreadFactory("assets-"));
+
+    private final ServerService serverService;
+
+    private final ParsedGameService parsedGameService;
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationProperties properties;
+
+    private final Path cacheFile;
+
+    private final Path imagesFolder;
+
+    //Checksums of generated images by source: game files fingerprint and name for game assets, pixels for flags
+    private final Map<String, String> checksums = new ConcurrentHashMap<>();
+
+    public AssetService(ServerService serverService, ParsedGameService parsedGameService, ObjectMapper objectMapper, ApplicationProperties properties) {
+        this.serverService = serverService;
+        this.parsedGameService = parsedGameService;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.cacheFile = properties.getDataFolder().resolve("assets.cache");
+        this.imagesFolder = properties.getDataFolder().resolve("images");
+        readCache();
+    }
+
+    public Map<String, Religion> getReligions(Save save) {
+        return save.getGame()
+                   .getReligions()
+                   .stream()
+                   .filter(religion -> religion.getIcon() != null)
+                   .collect(Collectors.toMap(Religion::getName, Function.identity(), (a, b) -> a));
+    }
+
+    public CompletableFuture<GeneratedAssets> generate(Save save, Path tmpFolder) throws IOException {
+        Path goodsTmpFolder = tmpFolder.resolve("goods");
+        Path religionsTmpFolder = tmpFolder.resolve("religions");
+        Path estatesTmpFolder = tmpFolder.resolve("estates");
+        Path flagsFolder = tmpFolder.resolve("flags");
+        FileUtils.forceMkdir(goodsTmpFolder.toFile());
+        FileUtils.forceMkdir(religionsTmpFolder.toFile());
+        FileUtils.forceMkdir(estatesTmpFolder.toFile());
+        FileUtils.forceMkdir(flagsFolder.toFile());
+
+        GeneratedAssets assets = new GeneratedAssets(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                                                     new ConcurrentHashMap<>());
+        String fingerprint = this.parsedGameService.getKey(save.getGame()).map(GameKey::fingerprint).orElse(null);
+        Collection<Religion> religions = getReligions(save).values();
+
+        List<SaveCountry> countries = save.getCountries()
+                                          .values()
+                                          .stream()
+                                          .filter(Predicate.not(SaveCountry::isObserver))
+                                          .filter(country -> !"REB".equals(country.getTag()))
+                                          .filter(country -> country.getHistory() != null)
+                                          .filter(country -> CollectionUtils.isNotEmpty(country.getHistory().getEvents()))
+                                          .filter(country -> country.getHistory()
+                                                                    .getEvents()
+                                                                    .stream()
+                                                                    .anyMatch(event -> event.getDate().isAfter(country.getSave().getStartDate())))
+                                          .toList();
+
+        //Flags have to be rendered to be identified, only the unknown ones are kept to be encoded
+        Map<SaveCountry, BufferedImage> newFlags = new ConcurrentHashMap<>();
+        Map<SaveCountry, String> knownFlags = new ConcurrentHashMap<>();
+        AtomicInteger skipped = new AtomicInteger();
+        CompletableFuture<Void> flagsRendering = CompletableFuture.allOf(submit(countries, FLAGS_PARALLELISM, country -> {
+            try {
+                BufferedImage image = country.getCustomFlagImage();
+                if (image == null) {
+                    return;
+                }
+
+                String checksum = this.checksums.get(flagKey(image));
+                if (checksum != null) {
+                    knownFlags.put(country, checksum);
+                } else {
+                    newFlags.put(country, image);
+                }
+            } catch (Exception e) {
+                LOGGER.warn("Could not render flag of {}: {}", country.getTag(), e.getMessage(), e);
+            }
+        }).toArray(CompletableFuture[]::new));
+
+        return flagsRendering.thenCompose(unused -> {
+            //Ask the server which of the images we could skip it is missing
+            AssetManifest manifest = new AssetManifest(Set.copyOf(knownFlags.values()),
+                                                       knownChecksums(religions.stream().map(Religion::getName), "religions", fingerprint),
+                                                       knownChecksums(save.getGame().getTradeGoods().stream().map(good -> good.getName()), "goods",
+                                                                      fingerprint),
+                                                       knownChecksums(save.getGame().getEstates().stream().map(estate -> estate.getName()), "estates",
+                                                                      fingerprint));
+
+            return manifest.isEmpty() ? CompletableFuture.completedFuture(Optional.<AssetManifest>empty())
+                                      : this.serverService.getMissingAssets(manifest);
+        }).thenCompose(missing -> {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+            futures.addAll(submit(save.getGame().getTradeGoods(), GAME_ASSETS_PARALLELISM, tradeGood -> {
+                String key = gameKey("goods", fingerprint, tradeGood.getName());
+                if (canSkip(key, missing, AssetManifest::tradeGoods)) {
+                    skipped.incrementAndGet();
+                    assets.tradeGoods().put(tradeGood.getName(), this.checksums.get(key));
+                    return;
+                }
+
+                writeGameImage("trade good", tradeGood.getName(), goodsTmpFolder, file -> tradeGood.writeImageTo(file)).ifPresent(checksum -> {
+                    assets.tradeGoods().put(tradeGood.getName(), checksum);
+                    putChecksum(key, checksum);
+                });
+            }));
+
+            futures.addAll(submit(religions, GAME_ASSETS_PARALLELISM, religion -> {
+                String key = gameKey("religions", fingerprint, religion.getName());
+                if (canSkip(key, missing, AssetManifest::religions)) {
+                    skipped.incrementAndGet();
+                    assets.religions().put(religion.getName(), this.checksums.get(key));
+                    return;
+                }
+
+                writeGameImage("religion", religion.getName(), religionsTmpFolder, file -> religion.writeImageTo(file)).ifPresent(checksum -> {
+                    assets.religions().put(religion.getName(), checksum);
+                    putChecksum(key, checksum);
+                });
+            }));
+
+            futures.addAll(submit(save.getGame().getEstates(), GAME_ASSETS_PARALLELISM, estate -> {
+                String key = gameKey("estates", fingerprint, estate.getName());
+                if (canSkip(key, missing, AssetManifest::estates)) {
+                    skipped.incrementAndGet();
+                    assets.estates().put(estate.getName(), this.checksums.get(key));
+                    return;
+                }
+
+                writeGameImage("estate", estate.getName(), estatesTmpFolder, file -> estate.writeImageTo(file)).ifPresent(checksum -> {
+                    assets.estates().put(estate.getName(), checksum);
+                    putChecksum(key, checksum);
+                });
+            }));
+
+            List<SaveCountry> flagsToWrite = new ArrayList<>(newFlags.keySet());
+            knownFlags.forEach((country, checksum) -> {
+                if (missing.isPresent() && !missing.get().countries().contains(checksum)) {
+                    assets.countries().put(country.getTag(), checksum);
+                    skipped.incrementAndGet();
+                } else {
+                    flagsToWrite.add(country);
+                }
+            });
+
+            futures.addAll(submit(flagsToWrite, FLAGS_PARALLELISM, country -> {
+                try {
+                    BufferedImage image = newFlags.containsKey(country) ? newFlags.get(country) : country.getCustomFlagImage();
+                    Path flag = AssetWriter.writePng(image, flagsFolder);
+                    String checksum = FilenameUtils.getBaseName(flag.getFileName().toString());
+                    assets.countries().put(country.getTag(), checksum);
+                    putChecksum(flagKey(image), checksum);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not write country file for {}: {}", country.getTag(), e.getMessage(), e);
+                }
+            }));
+
+            return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+        }).thenApply(unused -> {
+            LOGGER.info("Skipped {} images already known by server", skipped.get());
+            writeCache();
+            return assets;
+        });
+    }
+
+    //Images requested by the server after the upload, the ones skipped when generating because it had them are written now
+    public CompletableFuture<Map<String, Path>> writeRequested(Save save, Path tmpFolder, GeneratedAssets generated, AssetsDTO requested,
+                                                               Collection<Religion> religions) {
+        Map<String, Path> images = new ConcurrentHashMap<>();
+        Set<String> failed = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        if (CollectionUtils.isNotEmpty(requested.tradeGoods())) {
+            futures.addAll(submit(save.getGame().getTradeGoods().stream().filter(good -> requested.tradeGoods().contains(good.getName())).toList(),
+                                  GAME_ASSETS_PARALLELISM,
+                                  good -> requestedGameImage("goods", good.getName(), generated.tradeGoods().get(good.getName()), tmpFolder,
+                                                             file -> good.writeImageTo(file), images, failed)));
+        }
+
+        if (CollectionUtils.isNotEmpty(requested.religions())) {
+            futures.addAll(submit(religions.stream().filter(religion -> requested.religions().contains(religion.getName())).toList(),
+                                  GAME_ASSETS_PARALLELISM,
+                                  religion -> requestedGameImage("religions", religion.getName(), generated.religions().get(religion.getName()),
+                                                                 tmpFolder, file -> religion.writeImageTo(file), images, failed)));
+        }
+
+        if (CollectionUtils.isNotEmpty(requested.estates())) {
+            futures.addAll(submit(save.getGame().getEstates().stream().filter(estate -> requested.estates().contains(estate.getName())).toList(),
+                                  GAME_ASSETS_PARALLELISM,
+                                  estate -> requestedGameImage("estates", estate.getName(), generated.estates().get(estate.getName()), tmpFolder,
+                                                               file -> estate.writeImageTo(file), images, failed)));
+        }
+
+        if (CollectionUtils.isNotEmpty(requested.countries())) {
+            Path flagsFolder = tmpFolder.resolve("flags");
+            futures.addAll(submit(save.getCountries()
+                                      .values()
+                                      .stream()
+                                      .filter(country -> requested.countries().contains(country.getTag()))
+                                      .filter(SaveCountry::useCustomFlagImage)
+                                      .toList(), FLAGS_PARALLELISM, country -> {
+                String checksum = generated.countries().get(country.getTag());
+                Path flag = checksum == null ? null : flagsFolder.resolve(checksum + ".png");
+
+                try {
+                    if (flag == null || !Files.exists(flag)) {
+                        BufferedImage image = country.getCustomFlagImage();
+
+                        if (image == null) {
+                            if (checksum != null) {
+                                failed.add("flags/" + country.getTag());
+                            }
+
+                            return;
+                        }
+
+                        flag = AssetWriter.writePng(image, flagsFolder);
+                    }
+
+                    images.put("flags/" + flag.getFileName(), flag);
+                } catch (Exception e) {
+                    LOGGER.warn("Could not write country file for {}: {}", country.getTag(), e.getMessage(), e);
+                    failed.add("flags/" + country.getTag());
+                }
+            }));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenCompose(unused -> {
+            if (!failed.isEmpty()) {
+                return CompletableFuture.failedFuture(new IOException("Could not write images requested by server: " + failed));
+            }
+
+            return CompletableFuture.completedFuture(images);
+        });
+    }
+
+    public CompletableFuture<Map<String, Path>> convertImages(String folder, Collection<File> sources) {
+        return convertImages(folder, sources, this.imagesFolder);
+    }
+
+    //Converted images are kept in the store, the benchmark uses an empty one so every image is converted
+    public CompletableFuture<Map<String, Path>> convertImages(String folder, Collection<File> sources, Path store) {
+        Map<String, Path> images = new ConcurrentHashMap<>();
+        Map<String, File> toConvert = new HashMap<>();
+
+        sources.stream().filter(Objects::nonNull).forEach(file -> Constants.getFileChecksum(file).ifPresent(checksum -> {
+            Path image = store.resolve(checksum + ".png");
+
+            if (Files.exists(image)) {
+                touch(image);
+                images.put(folder + "/" + image.getFileName(), image);
+            } else {
+                toConvert.putIfAbsent(checksum, file);
+            }
+        }));
+
+        if (toConvert.isEmpty()) {
+            return CompletableFuture.completedFuture(images);
+        }
+
+        long start = System.currentTimeMillis();
+        int nbStored = images.size();
+
+        try {
+            FileUtils.forceMkdir(store.toFile());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return CompletableFuture.allOf(submit(toConvert.entrySet(), NB_THREADS, entry -> {
+            Path tmpFolder = null;
+
+            try {
+                //Converted aside then moved, the same image may be requested by another folder at the same time
+                tmpFolder = Files.createTempDirectory(store, "tmp");
+                Path converted = Game.convertImage(tmpFolder, Path.of(""), entry.getKey(), entry.getValue().toPath());
+
+                if (converted == null) {
+                    LOGGER.warn("Could not convert image {}", entry.getValue());
+                    return;
+                }
+
+                Path image = store.resolve(entry.getKey() + ".png");
+                Files.move(tmpFolder.resolve(converted), image, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                images.put(folder + "/" + image.getFileName(), image);
+            } catch (IOException e) {
+                LOGGER.warn("Could not convert image {}: {}", entry.getValue(), e.getMessage(), e);
+            } finally {
+                if (tmpFolder != null) {
+                    FileUtils.deleteQuietly(tmpFolder.toFile());
+                }
+            }
+        }).toArray(CompletableFuture[]::new)).thenApply(unused -> {
+            LOGGER.info("Converted {} {} images in {}ms, {} taken from store", toConvert.size(), folder, System.currentTimeMillis() - start, nbStored);
+            return images;
+        });
+    }
+
+    //The least recently used images are removed once the store is bigger than allowed, the ones taken from it are touched
+    public synchronized void pruneImages() {
+        if (!Files.isDirectory(this.imagesFolder)) {
+            return;
+        }
+
+        List<StoredImage> images = new ArrayList<>();
+
+        try (Stream<Path> stream = Files.list(this.imagesFolder)) {
+            for (Path image : stream.filter(path -> path.getFileName().toString().endsWith(".png")).toList()) {
+                BasicFileAttributes attributes = Files.readAttributes(image, BasicFileAttributes.class);
+                images.add(new StoredImage(image, attributes.size(), attributes.lastModifiedTime().toMillis()));
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not list images store {}: {}", this.imagesFolder, e.getMessage());
+            return;
+        }
+
+        images.sort(Comparator.comparingLong(StoredImage::lastUse).reversed());
+
+        long size = 0;
+        int nbDeleted = 0;
+
+        for (StoredImage image : images) {
+            size += image.size();
+
+            if (size > this.properties.getImagesStoreSize().toBytes() && FileUtils.deleteQuietly(image.path().toFile())) {
+                nbDeleted++;
+            }
+        }
+
+        if (nbDeleted > 0) {
+            LOGGER.info("Removed {} images not used recently from store, {}/{} kept", nbDeleted, images.size() - nbDeleted, images.size());
+        }
+    }
+
+    private void touch(Path image) {
+        try {
+            Files.setLastModifiedTime(image, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            LOGGER.debug("Could not touch image {}: {}", image, e.getMessage());
+        }
+    }
+
+    //Game objects are shared by all the saves parsed with the same game, so the file is computed here and never read back from them
+    private Optional<String> writeGameImage(String type, String name, Path folder, ImageWriter writer) {
+        Path file = folder.resolve(name + ".png");
+
+        try {
+            writer.write(file);
+
+            Optional<String> checksum = Constants.getFileChecksum(file);
+            if (checksum.isEmpty()) {
+                LOGGER.warn("Could not get hash for {} {}", type, name);
+                return Optional.empty();
+            }
+
+            Path image = folder.resolve(checksum.get() + ".png");
+            if (Files.exists(image)) {
+                Files.delete(file);
+            } else {
+                Files.move(file, image);
+            }
+
+            return checksum;
+        } catch (Exception e) {
+            LOGGER.warn("Could not write {} file for {}: {}", type, name, e.getMessage(), e);
+            return Optional.empty();
+        }
+    }
+
+    //A requested image referenced by the save has to be sent, otherwise the server would never get it
+    private void requestedGameImage(String folder, String name, String checksum, Path tmpFolder, ImageWriter writer, Map<String, Path> images,
+                                    Set<String> failed) {
+        Path image = checksum == null ? null : tmpFolder.resolve(folder).resolve(checksum + ".png");
+
+        if (image == null || !Files.exists(image)) {
+            Optional<String> written = writeGameImage(folder, name, tmpFolder.resolve(folder), writer);
+
+            if (written.isEmpty()) {
+                if (checksum != null) {
+                    failed.add(folder + "/" + name);
+                }
+
+                return;
+            }
+
+            image = tmpFolder.resolve(folder).resolve(written.get() + ".png");
+        }
+
+        images.put(folder + "/" + image.getFileName(), image);
+    }
+
+    private Set<String> knownChecksums(Stream<String> names, String type, String fingerprint) {
+        if (fingerprint == null) {
+            return Set.of();
+        }
+
+        return names.map(name -> this.checksums.get(gameKey(type, fingerprint, name))).filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+
+    private boolean canSkip(String key, Optional<AssetManifest> missing, Function<AssetManifest, Set<String>> type) {
+        String checksum = key == null ? null : this.checksums.get(key);
+
+        return checksum != null && missing.isPresent() && !type.apply(missing.get()).contains(checksum);
+    }
+
+    private void putChecksum(String key, String checksum) {
+        if (key != null) {
+            this.checksums.put(key, checksum);
+        }
+    }
+
+    private String gameKey(String type, String fingerprint, String name) {
+        return fingerprint == null ? null : type + ":" + fingerprint + ":" + name;
+    }
+
+    private String flagKey(BufferedImage image) {
+        int[] pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        ByteBuffer buffer = ByteBuffer.allocate(8 + pixels.length * 4);
+        buffer.putInt(image.getWidth()).putInt(image.getHeight()).asIntBuffer().put(pixels);
+
+        try {
+            return "flags:" + Constants.bytesToHex(MessageDigest.getInstance("SHA-256").digest(buffer.array()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void readCache() {
+        if (!Files.exists(this.cacheFile)) {
+            return;
+        }
+
+        try {
+            this.checksums.putAll(this.objectMapper.readValue(this.cacheFile.toFile(), new TypeReference<Map<String, String>>() {}));
+        } catch (IOException e) {
+            LOGGER.warn("Could not read assets cache {}: {}", this.cacheFile, e.getMessage());
+        }
+    }
+
+    private synchronized void writeCache() {
+        try {
+            FileUtils.forceMkdirParent(this.cacheFile.toFile());
+            this.objectMapper.writeValue(this.cacheFile.toFile(), this.checksums);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write assets cache {}: {}", this.cacheFile, e.getMessage());
+        }
+    }
+
+    private <T> List<CompletableFuture<Void>> submit(Collection<T> items, int parallelism, Consumer<T> action) {
+        if (CollectionUtils.isEmpty(items)) {
+            return List.of();
+        }
+
+        return ListUtils.partition(new ArrayList<>(items), (items.size() + parallelism - 1) / parallelism)
+                        .stream()
+                        .map(batch -> CompletableFuture.runAsync(() -> batch.forEach(action), this.executor))
+                        .toList();
+    }
+
+    @FunctionalInterface
+    private interface ImageWriter {
+
+        void write(Path file) throws Exception;
+    }
+
+    private record StoredImage(Path path, long size, long lastUse) {
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+}
@@ -0,0 +1,121 @@
+package fr.osallek.osasaveextractor.service;
+
+import fr.osallek.eu4parser.Eu4Parser;
+import fr.osallek.osasaveextractor.config.ApplicationProperties;
+import fr.osallek.osasaveextractor.service.object.AnalysisJob;
+import fr.osallek.osasaveextractor.service.object.BatchJob;
+import fr.osallek.osasaveextractor.service.object.ProgressState;
+import fr.osallek.osasaveextractor.service.object.ProgressStep;
+import fr.osallek.osasaveextractor.service.object.server.UploadResponseDTO;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+@Service
+public class BatchService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchService.class);
+
+    private final Eu4Service eu4Service;
+
+    private final MessageSource messageSource;
+
+    private final ThreadPoolTaskExecutor executor;
+
+    private final Semaphore permits;
+
+    public BatchService(Eu4Service eu4Service, MessageSource messageSource, ThreadPoolTaskExecutor executor, ApplicationProperties properties) {
+        this.eu4Service = eu4Service;
+        this.messageSource = messageSource;
+        this.executor = executor;
+
+        //A parsed save takes a lot of memory and its analysis already uses the assets pool, so keep some cores for it
+        long byMemory = Runtime.getRuntime().maxMemory() / Math.max(1, properties.getBatchSaveMemory().toBytes());
+        int byCores = Runtime.getRuntime().availableProcessors() / 2;
+        int parallelism = (int) Math.max(1, Math.min(byMemory, byCores));
+        this.permits = new Semaphore(parallelism);
+        LOGGER.info("Batch analysis will process up to {} saves at the same time", parallelism);
+    }
+
+    //Saves are grouped by mods so the game is only parsed once per group, and sorted by date inside a group
+    //If chained, each save of a group is uploaded after the previous one and linked to it, the first one is linked to previousSave
+    public BatchJob submit(Collection<Path> saves, String previousSave, boolean chain) {
+        //Read once instead of on each comparison
+        Map<Path, Long> lastModified = saves.stream()
+                                            .map(save -> this.eu4Service.getLauncherSettings().getSavesFolder().resolve(save))
+                                            .collect(Collectors.toMap(Function.identity(), save -> save.toFile().lastModified(), (a, b) -> a));
+        Map<List<String>, List<AnalysisJob>> groups = lastModified.keySet()
+                                                                  .stream()
+                                                                  .sorted(Comparator.comparing(lastModified::get))
+                                                                  .map(save -> new AnalysisJob(save, getMods(save),
+                                                                                               new ProgressState(ProgressStep.NONE, this.messageSource,
+                                                                                                                 Locale.getDefault()),
+                                                                                               new CompletableFuture<>()))
+                                                                  .collect(Collectors.groupingBy(AnalysisJob::mods, LinkedHashMap::new, Collectors.toList()));
+
+        List<AnalysisJob> jobs = groups.values().stream().flatMap(Collection::stream).toList();
+        BatchJob batchJob = new BatchJob(UUID.randomUUID(), jobs,
+                                         CompletableFuture.allOf(jobs.stream().map(AnalysisJob::result).toArray(CompletableFuture[]::new)));
+
+        this.executor.execute(() -> {
+            for (List<AnalysisJob> group : groups.values()) {
+                CompletionStage<String> previous = CompletableFuture.completedFuture(previousSave);
+
+                for (AnalysisJob job : group) {
+                    try {
+                        this.permits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        jobs.forEach(j -> j.result().cancel(false));
+                        return;
+                    }
+
+                    CompletionStage<String> jobPrevious = previous;
+                    this.eu4Service.analyse(job.save(), chain ? previous : CompletableFuture.completedFuture(previousSave), job.state(),
+                                            error -> LOGGER.error("Error while analysing {}: {}", job.save(), error))
+                                   .whenComplete((response, throwable) -> {
+                                       this.permits.release();
+
+                                       if (throwable != null) {
+                                           job.result().completeExceptionally(throwable);
+                                       } else {
+                                           job.result().complete(response);
+                                       }
+                                   });
+
+                    //A failed save is skipped, the next one is linked to the last one that was uploaded
+                    previous = job.result()
+                                  .thenApply(UploadResponseDTO::id)
+                                  .exceptionallyCompose(throwable -> jobPrevious.toCompletableFuture());
+                }
+            }
+        });
+
+        return batchJob;
+    }
+
+    private List<String> getMods(Path save) {
+        try {
+            List<String> mods = Eu4Parser.getMods(save);
+            return mods == null ? List.of() : List.copyOf(mods);
+        } catch (Exception e) {
+            LOGGER.warn("Could not read mods of {}: {}", save, e.getMessage());
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package fr.osallek.osasaveextractor.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.osallek.osasaveextractor.config.ApplicationProperties;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+@Service
+public class CampaignService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CampaignService.class);
+
+    private static final Pattern ROTATION_PATTERN = Pattern.compile("^(?:older_|old_)(autosave)$");
+
+    private final ObjectMapper objectMapper;
+
+    private final Path file;
+
+    //Last uploaded save id by campaign
+    private final Map<String, String> lastUploads = new ConcurrentHashMap<>();
+
+    public CampaignService(ObjectMapper objectMapper, ApplicationProperties properties) {
+        this.objectMapper = objectMapper;
+        this.file = properties.getDataFolder().resolve("campaigns.json");
+        read();
+    }
+
+    public Optional<String> getLastUpload(Path save) {
+        return Optional.ofNullable(this.lastUploads.get(getCampaign(save)));
+    }
+
+    public void setLastUpload(Path save, String id) {
+        this.lastUploads.put(getCampaign(save), id);
+        write();
+    }
+
+    //Autosaves rotate between autosave, old_autosave and older_autosave, they belong to the same campaign
+    //Other saves may start with old_ and are campaigns of their own
+    public String getCampaign(Path save) {
+        String name = FilenameUtils.getBaseName(save.getFileName().toString());
+        Matcher matcher = ROTATION_PATTERN.matcher(name);
+
+        return save.toAbsolutePath().resolveSibling(matcher.matches() ? matcher.group(1) : name).toString();
+    }
+
+    //The game renames the previous autosaves when writing a new one, they were already seen under their previous name
+    public boolean isRotation(Path save) {
+        return ROTATION_PATTERN.matcher(FilenameUtils.getBaseName(save.getFileName().toString())).matches();
+    }
+
+    private void read() {
+        if (!Files.exists(this.file)) {
+            return;
+        }
+
+        try {
+            this.lastUploads.putAll(this.objectMapper.readValue(this.file.toFile(), new TypeReference<Map<String, String>>() {}));
+        } catch (IOException e) {
+            LOGGER.warn("Could not read campaigns {}: {}", this.file, e.getMessage());
+        }
+    }
+
+    private synchronized void write() {
+        try {
+            FileUtils.forceMkdirParent(this.file.toFile());
+            this.objectMapper.writeValue(this.file.toFile(), this.lastUploads);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write campaigns {}: {}", this.file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package fr.osallek.osasaveextractor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.osallek.osasaveextractor.config.ApplicationProperties;
+import fr.osallek.osasaveextractor.service.object.UploadIndex;
+import fr.osallek.osasaveextractor.service.object.UploadIndex.CountryIndex;
+import fr.osallek.osasaveextractor.service.object.UploadIndex.HistoryIndex;
+import fr.osallek.osasaveextractor.service.object.save.CountryDTO;
+import fr.osallek.osasaveextractor.service.object.save.CountryHistoryDTO;
+import fr.osallek.osasaveextractor.service.object.save.ProvinceDTO;
+import fr.osallek.osasaveextractor.service.object.save.ProvinceHistoryDTO;
+import fr.osallek.osasaveextractor.service.object.save.SaveDTO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+@Service
+public class DeltaService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeltaService.class);
+
+    private static final Map<String, Statistics> STATISTICS = Map.of(
+            "income", new Statistics(CountryDTO::getIncomeStatistics, CountryDTO::setIncomeStatistics),
+            "nationSize", new Statistics(CountryDTO::getNationSizeStatistics, CountryDTO::setNationSizeStatistics),
+            "score", new Statistics(CountryDTO::getScoreStatistics, CountryDTO::setScoreStatistics),
+            "inflation", new Statistics(CountryDTO::getInflationStatistics, CountryDTO::setInflationStatistics));
+
+    private final ApplicationProperties properties;
+
+    private final ObjectMapper objectMapper;
+
+    private final Path indexesFolder;
+
+    public DeltaService(ApplicationProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.indexesFolder = properties.getDataFolder().resolve("uploads");
+    }
+
+    public Optional<UploadIndex> prepare(SaveDTO save, String previousSave) {
+        if (!this.properties.isDeltaUpload()) {
+            return Optional.empty();
+        }
+
+        //The index is of the full save, its digest is the one of the data sent and is set once it has been written
+        UploadIndex index = index(save);
+
+        if (StringUtils.isNotBlank(previousSave)) {
+            readIndex(previousSave).filter(base -> base.digest() != null).ifPresent(base -> {
+                long size = countEntries(save);
+
+                save.getProvinces()
+                    .forEach(province -> province.setHistoryFrom(trimHistory(province.getHistory(), ProvinceHistoryDTO::getDate,
+                                                                             base.provinces().get(province.getId()))));
+                save.getCountries().forEach(country -> {
+                    CountryIndex countryIndex = base.countries().get(country.getTag());
+
+                    if (countryIndex != null) {
+                        country.setHistoryFrom(trimHistory(country.getHistory(), CountryHistoryDTO::getDate, countryIndex.history()));
+                        STATISTICS.forEach((name, statistics) -> trimStatistics(country, statistics, countryIndex.statistics().get(name)));
+                    }
+                });
+                save.setDelta(previousSave, base.digest());
+
+                LOGGER.info("Sending {}/{} history entries and statistics changed since {}", countEntries(save), size, previousSave);
+            });
+        }
+
+        return Optional.of(index);
+    }
+
+    public void save(String id, UploadIndex index) {
+        Path file = this.indexesFolder.resolve(id + ".json");
+
+        try {
+            FileUtils.forceMkdirParent(file.toFile());
+            this.objectMapper.writeValue(file.toFile(), index);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write upload index {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Optional<UploadIndex> readIndex(String id) {
+        Path file = this.indexesFolder.resolve(id + ".json");
+
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(this.objectMapper.readValue(file.toFile(), UploadIndex.class));
+        } catch (IOException e) {
+            LOGGER.warn("Could not read upload index {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private UploadIndex index(SaveDTO save) {
+        Map<Integer, HistoryIndex> provinces = new TreeMap<>();
+        save.getProvinces()
+            .forEach(province -> provinces.putIfAbsent(province.getId(), historyIndex(province.getHistory(), ProvinceHistoryDTO::getDate)));
+        Map<String, CountryIndex> countries = save.getCountries()
+                                                  .stream()
+                                                  .collect(Collectors.toMap(CountryDTO::getTag, this::countryIndex, (a, b) -> a, TreeMap::new));
+
+        return new UploadIndex(null, provinces, countries);
+    }
+
+    private CountryIndex countryIndex(CountryDTO country) {
+        Map<String, Integer> statistics = new TreeMap<>();
+
+        STATISTICS.forEach((name, block) -> {
+            SortedMap<Integer, Integer> values = block.getter().apply(country);
+
+            if (MapUtils.isNotEmpty(values)) {
+                statistics.put(name, values.lastKey());
+            }
+        });
+
+        return new CountryIndex(historyIndex(country.getHistory(), CountryHistoryDTO::getDate), statistics);
+    }
+
+    private <T> HistoryIndex historyIndex(List<T> history, Function<T, LocalDate> date) {
+        if (history.isEmpty()) {
+            return new HistoryIndex(0, null);
+        }
+
+        LocalDate last = date.apply(history.get(history.size() - 1));
+
+        return new HistoryIndex(countBefore(history, date, last), last);
+    }
+
+    //Histories are sorted by date and only grow, the entries before the last date of the base are already known by the server
+    //If their number changed, an entry was inserted or removed in the past and the whole history is sent
+    private <T> Integer trimHistory(List<T> history, Function<T, LocalDate> date, HistoryIndex base) {
+        if (base == null || base.last() == null) {
+            return null;
+        }
+
+        int before = countBefore(history, date, base.last());
+
+        if (before != base.before()) {
+            return null;
+        }
+
+        history.subList(0, before).clear();
+
+        return before;
+    }
+
+    private <T> int countBefore(List<T> history, Function<T, LocalDate> date, LocalDate last) {
+        return (int) history.stream().map(date).filter(d -> d.isBefore(last)).count();
+    }
+
+    //Statistics are merged by year with the ones of the base, the last year of the base may have changed so it is sent again
+    private void trimStatistics(CountryDTO country, Statistics statistics, Integer lastYear) {
+        SortedMap<Integer, Integer> values = statistics.getter().apply(country);
+
+        if (lastYear != null && MapUtils.isNotEmpty(values) && values.containsKey(lastYear)) {
+            statistics.setter().accept(country, new TreeMap<>(values.tailMap(lastYear)));
+        }
+    }
+
+    private long countEntries(SaveDTO save) {
+        return save.getProvinces().stream().mapToLong(province -> province.getHistory().size()).sum()
+               + save.getCountries()
+                     .stream()
+                     .mapToLong(country -> country.getHistory().size() + STATISTICS.values()
+                                                                                   .stream()
+                                                                                   .map(statistics -> statistics.getter().apply(country))
+                                                                                   .filter(Objects::nonNull)
+                                                                                   .mapToLong(Map::size)
+                                                                                   .sum())
+                     .sum();
+    }
+
+    private record Statistics(Function<CountryDTO, SortedMap<Integer, Integer>> getter,
+                              BiConsumer<CountryDTO, SortedMap<Integer, Integer>> setter) {
+    }
+}
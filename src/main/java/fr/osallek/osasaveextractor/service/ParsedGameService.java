@@ -0,0 +1,310 @@
+package fr.osallek.osasaveextractor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.osallek.eu4parser.Eu4Parser;
+import fr.osallek.eu4parser.model.LauncherSettings;
+import fr.osallek.eu4parser.model.game.Game;
+import fr.osallek.osasaveextractor.common.Constants;
+import fr.osallek.osasaveextractor.config.ApplicationProperties;
+import fr.osallek.osasaveextractor.service.object.GameKey;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+//Keeps the last parsed games in memory for the session, the parser has no serialised form of a game
+@Service
+public class ParsedGameService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParsedGameService.class);
+
+    private static final String INDEX_FILE = "last-game.json";
+
+    private static final Pattern DESCRIPTOR_PATTERN = Pattern.compile("^\\s*(\\w+)\\s*=\\s*\"([^\"]*)\"", Pattern.MULTILINE);
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationProperties properties;
+
+    private final Path indexFile;
+
+    private final Map<GameKey, ParsedGame> games = new ConcurrentHashMap<>();
+
+    //Only the parses of the same game wait for each other
+    private final Map<GameKey, CompletableFuture<Game>> parsing = new ConcurrentHashMap<>();
+
+    private final AtomicLong uses = new AtomicLong(0);
+
+    private volatile GameKey lastKey;
+
+    public ParsedGameService(ApplicationProperties properties, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.indexFile = properties.getDataFolder().resolve(INDEX_FILE);
+        this.lastKey = readIndex();
+    }
+
+    public Game getGame(Path installationFolder, List<String> mods, LauncherSettings launcherSettings, Runnable listener) throws IOException {
+        return getGame(getKey(installationFolder, mods, launcherSettings), launcherSettings, listener);
+    }
+
+    public Game getGame(GameKey key, LauncherSettings launcherSettings, Runnable listener) throws IOException {
+        Game game = getParsed(key);
+
+        if (game != null) {
+            LOGGER.info("Game files did not change, reusing parsed game for mods {}", key.mods());
+            return game;
+        }
+
+        CompletableFuture<Game> parse = new CompletableFuture<>();
+        CompletableFuture<Game> running = this.parsing.putIfAbsent(key, parse);
+
+        if (running != null) {
+            LOGGER.info("Game for mods {} is already being parsed, waiting for it", key.mods());
+
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof IOException ioException ? ioException : e;
+            }
+        }
+
+        try {
+            game = getParsed(key); //Parsed while this one was checking
+
+            if (game == null) {
+                if (this.lastKey != null && this.lastKey.mods().equals(key.mods()) && !this.lastKey.equals(key)) {
+                    LOGGER.info("Game files changed since last parse, parsing game again for mods {}", key.mods());
+                }
+
+                game = Eu4Parser.parseGame(key.installationFolder(), key.mods(), launcherSettings, listener);
+                put(key, game);
+                writeIndex(key);
+            }
+
+            parse.complete(game);
+
+            return game;
+        } catch (IOException | RuntimeException e) {
+            parse.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.parsing.remove(key, parse);
+        }
+    }
+
+    //Recomputed on each call so files changed while the application is running are seen, only the attributes of the files are read
+    public GameKey getKey(Path installationFolder, List<String> mods, LauncherSettings launcherSettings) throws IOException {
+        List<Path> folders = new ArrayList<>();
+        folders.add(installationFolder);
+        folders.addAll(getModFolders(launcherSettings.getSavesFolder().getParent(), mods));
+
+        return new GameKey(installationFolder, mods == null ? List.of() : List.copyOf(mods), fingerprint(folders));
+    }
+
+    public Optional<GameKey> getKey(Game game) {
+        return this.games.entrySet().stream().filter(entry -> entry.getValue().game().get() == game).map(Map.Entry::getKey).findFirst();
+    }
+
+    public Optional<GameKey> getLastKey() {
+        return Optional.ofNullable(this.lastKey);
+    }
+
+    private Game getParsed(GameKey key) {
+        ParsedGame parsed = this.games.get(key);
+
+        if (parsed == null) {
+            return null;
+        }
+
+        Game game = parsed.game().get();
+
+        if (game == null) {
+            LOGGER.info("Parsed game for mods {} was released to free memory, parsing it again", key.mods());
+            this.games.remove(key, parsed);
+        } else {
+            parsed.lastUse().set(this.uses.incrementAndGet());
+        }
+
+        return game;
+    }
+
+    private void put(GameKey key, Game game) {
+        //Outdated games for the same mods will never be used again
+        this.games.keySet().removeIf(k -> k.installationFolder().equals(key.installationFolder()) && k.mods().equals(key.mods()));
+        this.games.values().removeIf(parsed -> parsed.game().get() == null);
+        this.games.put(key, new ParsedGame(new SoftReference<>(game), new AtomicLong(this.uses.incrementAndGet())));
+
+        while (this.games.size() > Math.max(1, this.properties.getParsedGamesKept())) {
+            this.games.entrySet()
+                      .stream()
+                      .min(Comparator.comparingLong((Map.Entry<GameKey, ParsedGame> entry) -> entry.getValue().lastUse().get()))
+                      .ifPresent(entry -> this.games.remove(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    //Descriptors of workshop mods do not change when the mod is updated, only the content they point to does
+    private List<Path> getModFolders(Path userFolder, List<String> mods) throws IOException {
+        List<Path> folders = new ArrayList<>();
+
+        if (mods == null || mods.isEmpty()) {
+            return folders;
+        }
+
+        Map<String, Path> descriptorsByName = null;
+
+        for (String mod : mods) {
+            Path descriptor = mod.endsWith(".mod") ? userFolder.resolve(mod) : null;
+
+            if (descriptor == null || !Files.isRegularFile(descriptor)) {
+                if (descriptorsByName == null) {
+                    descriptorsByName = getDescriptorsByName(userFolder.resolve("mod"));
+                }
+
+                descriptor = descriptorsByName.get(mod);
+            }
+
+            if (descriptor == null) {
+                LOGGER.warn("Could not find descriptor of mod {}, its changes will not be detected", mod);
+                continue;
+            }
+
+            folders.add(descriptor);
+            Map<String, String> values = readDescriptor(descriptor);
+            String content = values.containsKey("path") ? values.get("path") : values.get("archive");
+
+            if (content != null) {
+                Path contentPath = Path.of(content);
+                folders.add(contentPath.isAbsolute() ? contentPath : userFolder.resolve(contentPath));
+            }
+        }
+
+        return folders;
+    }
+
+    private Map<String, Path> getDescriptorsByName(Path modFolder) throws IOException {
+        Map<String, Path> descriptors = new HashMap<>();
+
+        if (!Files.isDirectory(modFolder)) {
+            return descriptors;
+        }
+
+        try (Stream<Path> stream = Files.list(modFolder)) {
+            for (Path descriptor : stream.filter(path -> path.getFileName().toString().endsWith(".mod")).toList()) {
+                String name = readDescriptor(descriptor).get("name");
+
+                if (name != null) {
+                    descriptors.putIfAbsent(name, descriptor);
+                }
+            }
+        }
+
+        return descriptors;
+    }
+
+    private Map<String, String> readDescriptor(Path descriptor) throws IOException {
+        Map<String, String> values = new HashMap<>();
+        //Descriptors are often written in cp1252, only ascii keys and paths are read from them
+        Matcher matcher = DESCRIPTOR_PATTERN.matcher(Files.readString(descriptor, StandardCharsets.ISO_8859_1));
+
+        while (matcher.find()) {
+            values.putIfAbsent(matcher.group(1), matcher.group(2));
+        }
+
+        return values;
+    }
+
+    private String fingerprint(List<Path> folders) throws IOException {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+
+            for (Path folder : folders) {
+                md.update(folder.toString().getBytes(StandardCharsets.UTF_8));
+                md.update(walk(folder).getBytes(StandardCharsets.UTF_8));
+            }
+
+            return Constants.bytesToHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //Path, size and last modification of every file, also works on a single file for archived mods
+    private String walk(Path folder) throws IOException {
+        SortedMap<String, String> files = new TreeMap<>();
+
+        if (Files.exists(folder)) {
+            Files.walkFileTree(folder, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    files.put(file.toString(), attrs.size() + ":" + attrs.lastModifiedTime().toMillis());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+
+            for (Map.Entry<String, String> entry : files.entrySet()) {
+                md.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+                md.update(entry.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+
+            return Constants.bytesToHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private GameKey readIndex() {
+        if (!Files.exists(this.indexFile)) {
+            return null;
+        }
+
+        try {
+            return this.objectMapper.readValue(this.indexFile.toFile(), GameKey.class);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read last game {}: {}", this.indexFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeIndex(GameKey key) {
+        try {
+            FileUtils.forceMkdirParent(this.indexFile.toFile());
+            this.lastKey = key;
+            this.objectMapper.writeValue(this.indexFile.toFile(), key);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write last game {}: {}", this.indexFile, e.getMessage());
+        }
+    }
+
+    private record ParsedGame(SoftReference<Game> game, AtomicLong lastUse) {
+    }
+}
@@ -0,0 +1,192 @@
+package fr.osallek.osasaveextractor.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.osallek.osasaveextractor.config.ApplicationProperties;
+import fr.osallek.osasaveextractor.service.object.SaveMetadata;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+@Service
+public class SaveMetadataService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveMetadataService.class);
+
+    private static final int HEADER_SIZE = 16 * 1024;
+
+    private static final byte[] ZIP_MAGIC = "PK".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] TEXT_MAGIC = "EU4txt".getBytes(StandardCharsets.US_ASCII);
+
+    private static final Pattern DATE_PATTERN = Pattern.compile("^\\s*date=(\\d+)\\.(\\d+)\\.(\\d+)", Pattern.MULTILINE);
+
+    private static final Pattern IRONMAN_PATTERN = Pattern.compile("^\\s*ironman=yes", Pattern.MULTILINE);
+
+    private final ObjectMapper objectMapper;
+
+    private final Path cacheFile;
+
+    private final Map<Path, SaveMetadata> cache = new ConcurrentHashMap<>();
+
+    public SaveMetadataService(ObjectMapper objectMapper, ApplicationProperties properties) {
+        this.objectMapper = objectMapper;
+        this.cacheFile = properties.getDataFolder().resolve("saves.cache");
+        readCache();
+    }
+
+    //Saves of the folder, most recent first, only the new or changed ones are read again
+    public synchronized List<SaveMetadata> list(Path savesFolder) throws IOException {
+        if (!Files.isDirectory(savesFolder)) {
+            return new ArrayList<>();
+        }
+
+        List<SaveMetadata> saves = new ArrayList<>();
+        Set<Path> changed = new HashSet<>();
+
+        Files.walkFileTree(savesFolder, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && file.getFileName().toString().endsWith(".eu4")) {
+                    SaveMetadata metadata = cache.get(file);
+
+                    if (metadata == null || metadata.size() != attrs.size() || !metadata.lastModified().equals(attrs.lastModifiedTime().toInstant())) {
+                        metadata = readMetadata(file, attrs);
+                        cache.put(file, metadata);
+                        changed.add(file);
+                    }
+
+                    saves.add(metadata);
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                LOGGER.debug("Could not read {}: {}", file, exc.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Set<Path> found = new HashSet<>(saves.stream().map(SaveMetadata::path).toList());
+        boolean removed = this.cache.keySet().removeIf(path -> path.startsWith(savesFolder) && !found.contains(path));
+
+        if (!changed.isEmpty() || removed) {
+            LOGGER.info("Read metadata of {} saves, {} taken from cache", changed.size(), saves.size() - changed.size());
+            writeCache();
+        }
+
+        saves.sort(Comparator.comparing(SaveMetadata::lastModified, Comparator.reverseOrder()));
+
+        return saves;
+    }
+
+    public Optional<SaveMetadata> get(Path save) {
+        return Optional.ofNullable(this.cache.get(save));
+    }
+
+    private SaveMetadata readMetadata(Path file, BasicFileAttributes attrs) {
+        LocalDate date = null;
+        Boolean ironman = null;
+
+        try {
+            byte[] header = readHeader(file);
+
+            //Binary saves are not all ironman ones, their date and ironman flag can only be read by parsing the whole save
+            if (startsWith(header, TEXT_MAGIC)) {
+                String text = new String(header, StandardCharsets.ISO_8859_1);
+                Matcher matcher = DATE_PATTERN.matcher(text);
+
+                if (matcher.find()) {
+                    date = LocalDate.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)));
+                }
+
+                ironman = IRONMAN_PATTERN.matcher(text).find();
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Could not read header of {}: {}", file, e.getMessage());
+        }
+
+        return new SaveMetadata(file, FilenameUtils.getBaseName(file.getFileName().toString()), attrs.size(), attrs.lastModifiedTime().toInstant(),
+                                date, ironman);
+    }
+
+    //Compressed saves are zip files, their header is in the meta entry
+    private byte[] readHeader(Path file) throws IOException {
+        byte[] header;
+
+        try (InputStream stream = Files.newInputStream(file)) {
+            header = stream.readNBytes(HEADER_SIZE);
+        }
+
+        if (!startsWith(header, ZIP_MAGIC)) {
+            return header;
+        }
+
+        try (ZipFile zipFile = new ZipFile(file.toFile())) {
+            ZipEntry meta = zipFile.getEntry("meta");
+
+            if (meta == null) {
+                return new byte[0];
+            }
+
+            try (InputStream stream = zipFile.getInputStream(meta)) {
+                return stream.readNBytes(HEADER_SIZE);
+            }
+        }
+    }
+
+    private boolean startsWith(byte[] bytes, byte[] prefix) {
+        return bytes.length >= prefix.length && Arrays.equals(bytes, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private void readCache() {
+        if (!Files.exists(this.cacheFile)) {
+            return;
+        }
+
+        try {
+            //Binary saves used to be cached as ironman ones, they are read again
+            this.objectMapper.readValue(this.cacheFile.toFile(), new TypeReference<List<SaveMetadata>>() {})
+                             .stream()
+                             .filter(metadata -> metadata.date() != null || !Boolean.TRUE.equals(metadata.ironman()))
+                             .forEach(metadata -> this.cache.put(metadata.path(), metadata));
+        } catch (IOException e) {
+            LOGGER.warn("Could not read saves cache {}: {}", this.cacheFile, e.getMessage());
+        }
+    }
+
+    private void writeCache() {
+        try {
+            FileUtils.forceMkdirParent(this.cacheFile.toFile());
+            this.objectMapper.writeValue(this.cacheFile.toFile(), List.copyOf(this.cache.values()));
+        } catch (IOException e) {
+            LOGGER.warn("Could not write saves cache {}: {}", this.cacheFile, e.getMessage());
+        }
+    }
+}
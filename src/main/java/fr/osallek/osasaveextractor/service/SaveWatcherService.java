@@ -0,0 +1,267 @@
+package fr.osallek.osasaveextractor.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.osallek.osasaveextractor.common.Constants;
+import fr.osallek.osasaveextractor.config.ApplicationProperties;
+import fr.osallek.osasaveextractor.service.object.AnalysisJob;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.annotation.PreDestroy;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+@Service
+public class SaveWatcherService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SaveWatcherService.class);
+
+    private static final int MAX_ANALYSED = 1000;
+
+    private final Eu4Service eu4Service;
+
+    private final BatchService batchService;
+
+    private final CampaignService campaignService;
+
+    private final ApplicationProperties properties;
+
+    private final ObjectMapper objectMapper;
+
+    private final Path analysedFile;
+
+    private final List<Consumer<Path>> listeners = new CopyOnWriteArrayList<>();
+
+    //Last write event of the saves being written, only used by the watcher thread
+    private final Map<Path, Long> pending = new HashMap<>();
+
+    //Last queued analysis by campaign, an analysis starts once the previous one of its campaign is done so it is linked to it
+    private final Map<String, CompletableFuture<Void>> campaigns = new ConcurrentHashMap<>();
+
+    //Saves already analysed or being analysed, a save written again without changes is not uploaded twice, even after a restart
+    private final Set<String> analysed = ConcurrentHashMap.newKeySet();
+
+    //Saves successfully analysed, oldest first, the ones being analysed are not stored so they are analysed again after a restart
+    private final Set<String> stored = new LinkedHashSet<>();
+
+    private WatchService watchService;
+
+    private Thread thread;
+
+    public SaveWatcherService(Eu4Service eu4Service, BatchService batchService, CampaignService campaignService, ApplicationProperties properties,
+                              ObjectMapper objectMapper) {
+        this.eu4Service = eu4Service;
+        this.batchService = batchService;
+        this.campaignService = campaignService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.analysedFile = properties.getDataFolder().resolve("analysed.json");
+        readAnalysed();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!this.properties.isWatchSaves()) {
+            return;
+        }
+
+        Path savesFolder = this.eu4Service.getLauncherSettings().getSavesFolder();
+
+        if (!Files.isDirectory(savesFolder)) {
+            LOGGER.warn("Saves folder {} does not exist, new saves will not be detected", savesFolder);
+            return;
+        }
+
+        try {
+            this.watchService = savesFolder.getFileSystem().newWatchService();
+            register(savesFolder);
+        } catch (IOException e) {
+            LOGGER.warn("Could not watch saves folder {}: {}", savesFolder, e.getMessage(), e);
+            return;
+        }
+
+        this.thread = new Thread(this::watch, "saves-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public void addListener(Consumer<Path> listener) {
+        this.listeners.add(listener);
+    }
+
+    private void register(Path folder) throws IOException {
+        Files.walkFileTree(folder, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = this.watchService.poll(1, TimeUnit.SECONDS);
+
+                if (key != null) {
+                    Path folder = (Path) key.watchable();
+
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (StandardWatchEventKinds.OVERFLOW.equals(event.kind())) {
+                            continue;
+                        }
+
+                        Path path = folder.resolve((Path) event.context());
+
+                        if (StandardWatchEventKinds.ENTRY_CREATE.equals(event.kind()) && Files.isDirectory(path)) {
+                            register(path);
+                        } else if (path.getFileName().toString().endsWith(".eu4")) {
+                            this.pending.put(path, System.currentTimeMillis());
+                        }
+                    }
+
+                    key.reset();
+                }
+
+                checkPending();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            LOGGER.error("Stopped watching saves folder: {}", e.getMessage(), e);
+        }
+    }
+
+    //The game writes big saves incrementally, a save is complete once it has not been written for a while
+    private void checkPending() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, Long>> iterator = this.pending.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+
+            if (now - entry.getValue() < this.properties.getWatchDebounce().toMillis()) {
+                continue;
+            }
+
+            iterator.remove();
+
+            if (Files.isRegularFile(entry.getKey())) {
+                onSaveWritten(entry.getKey());
+            }
+        }
+    }
+
+    private void onSaveWritten(Path save) {
+        LOGGER.info("Detected new save {}", save);
+        this.listeners.forEach(listener -> listener.accept(save));
+
+        if (!this.properties.isAutoAnalyse() || this.campaignService.isRotation(save)) {
+            return;
+        }
+
+        String campaign = this.campaignService.getCampaign(save);
+        CompletableFuture<Void> queued = this.campaigns.getOrDefault(campaign, CompletableFuture.completedFuture(null))
+                                                       .exceptionally(throwable -> null)
+                                                       .thenCompose(unused -> analyse(save));
+        this.campaigns.put(campaign, queued);
+        queued.whenComplete((unused, throwable) -> this.campaigns.remove(campaign, queued));
+    }
+
+    //The previous save is read once the previous analysis of the campaign is done, never fails so the queue goes on
+    private CompletableFuture<Void> analyse(Path save) {
+        Optional<String> checksum = Constants.getFileChecksum(save);
+
+        if (checksum.isPresent() && !this.analysed.add(checksum.get())) {
+            LOGGER.info("Save {} did not change since its last analysis, skipping it", save);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        AnalysisJob job = this.batchService.submit(List.of(save), this.campaignService.getLastUpload(save).orElse(null), false).jobs().get(0);
+
+        return job.result().handle((response, throwable) -> {
+            if (throwable == null) {
+                checksum.ifPresent(this::writeAnalysed);
+                LOGGER.info("Automatically analysed {}: {}", save, response.link());
+            } else {
+                checksum.ifPresent(this.analysed::remove);
+                LOGGER.warn("Could not automatically analyse {}: {}", save, throwable.getMessage());
+            }
+
+            return null;
+        });
+    }
+
+    private void readAnalysed() {
+        if (!Files.exists(this.analysedFile)) {
+            return;
+        }
+
+        try {
+            this.stored.addAll(this.objectMapper.readValue(this.analysedFile.toFile(), new TypeReference<List<String>>() {}));
+            this.analysed.addAll(this.stored);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read analysed saves {}: {}", this.analysedFile, e.getMessage());
+        }
+    }
+
+    //Only the last analysed saves are kept, an older one written again is very unlikely
+    private synchronized void writeAnalysed(String checksum) {
+        this.stored.add(checksum);
+
+        Iterator<String> iterator = this.stored.iterator();
+
+        while (this.stored.size() > MAX_ANALYSED) {
+            this.analysed.remove(iterator.next());
+            iterator.remove();
+        }
+
+        try {
+            FileUtils.forceMkdirParent(this.analysedFile.toFile());
+            this.objectMapper.writeValue(this.analysedFile.toFile(), List.copyOf(this.stored));
+        } catch (IOException e) {
+            LOGGER.warn("Could not write analysed saves {}: {}", this.analysedFile, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.thread != null) {
+            this.thread.interrupt();
+        }
+
+        if (this.watchService != null) {
+            try {
+                this.watchService.close();
+            } catch (IOException e) {
+                LOGGER.warn("Could not stop watching saves folder: {}", e.getMessage());
+            }
+        }
+    }
+}
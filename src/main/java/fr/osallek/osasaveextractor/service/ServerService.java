@@ -1,112 +1,485 @@
 package fr.osallek.osasaveextractor.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import fr.osallek.eu4parser.common.ZipUtils;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.github.luben.zstd.ZstdOutputStream;
 import fr.osallek.osasaveextractor.OsaSaveExtractorApplication;
+import fr.osallek.osasaveextractor.common.Constants;
 import fr.osallek.osasaveextractor.common.exception.ServerException;
 import fr.osallek.osasaveextractor.config.ApplicationProperties;
 import fr.osallek.osasaveextractor.controller.object.DataAssetDTO;
 import fr.osallek.osasaveextractor.controller.object.ErrorObject;
 import fr.osallek.osasaveextractor.service.object.save.SaveDTO;
+import fr.osallek.osasaveextractor.service.object.server.AssetManifest;
 import fr.osallek.osasaveextractor.service.object.server.ServerSave;
+import fr.osallek.osasaveextractor.service.object.server.UploadEncoding;
+import fr.osallek.osasaveextractor.service.object.server.UploadFormat;
 import fr.osallek.osasaveextractor.service.object.server.UploadResponseDTO;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 
 @Service
 public class ServerService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerService.class);
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final ApplicationProperties properties;
 
     private final ObjectMapper objectMapper;
 
-    private final RestTemplate restTemplate;
+    private final ObjectMapper smileObjectMapper;
+
+    private final HttpClient httpClient;
+
+    private final ThreadPoolTaskExecutor executor;
 
-    public ServerService(ApplicationProperties properties, ObjectMapper objectMapper, RestTemplate restTemplate) {
+    private final UploadFormat dataFormat;
+
+    private final UploadEncoding dataEncoding;
+
+    public ServerService(ApplicationProperties properties, ObjectMapper objectMapper, Jackson2ObjectMapperBuilder objectMapperBuilder, HttpClient httpClient,
+                         ThreadPoolTaskExecutor executor) {
         this.properties = properties;
         this.objectMapper = objectMapper;
-        this.restTemplate = restTemplate;
+        //Tags, cultures and map keys are repeated thousands of times, let Smile back-reference them
+        this.smileObjectMapper = objectMapperBuilder.factory(SmileFactory.builder()
+                                                                         .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                                                                         .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                                                                         .build())
+                                                    .build();
+        this.httpClient = httpClient;
+        this.executor = executor;
+        this.dataFormat = properties.getUploadFormat() == null ? UploadFormat.JSON : properties.getUploadFormat();
+        this.dataEncoding = properties.getUploadEncoding() == null ? UploadEncoding.IDENTITY : properties.getUploadEncoding();
     }
 
     public SortedSet<ServerSave> getSaves() {
-        ResponseEntity<List<ServerSave>> response = this.restTemplate.exchange(
-                this.properties.getServerUrl() + "/api/save/user/" + OsaSaveExtractorApplication.ID, HttpMethod.GET, null,
-                new ParameterizedTypeReference<>() {});
+        SortedSet<ServerSave> saves = new TreeSet<>(Comparator.comparing(ServerSave::creationDate).reversed());
+        HttpRequest request = HttpRequest.newBuilder(URI.create(this.properties.getServerUrl() + "/api/save/user/" + OsaSaveExtractorApplication.ID))
+                                         .timeout(this.properties.getSavesTimeout())
+                                         .GET()
+                                         .build();
 
-        if (!HttpStatus.OK.equals(response.getStatusCode())) {
-            LOGGER.error("An error occurred while retrieving saves from server: {}", response.getStatusCode());
-        }
+        try {
+            HttpResponse<String> response = this.httpClient.send(request, HttpResponse.BodyHandlers.ofString());
 
-        SortedSet<ServerSave> saves = new TreeSet<>(Comparator.comparing(ServerSave::creationDate).reversed());
+            if (HttpStatus.OK.value() != response.statusCode()) {
+                LOGGER.error("An error occurred while retrieving saves from server: {}", response.statusCode());
+                return saves;
+            }
+
+            List<ServerSave> body = this.objectMapper.readValue(response.body(), new TypeReference<>() {});
 
-        if (CollectionUtils.isNotEmpty(response.getBody())) {
-            saves.addAll(response.getBody());
+            if (CollectionUtils.isNotEmpty(body)) {
+                saves.addAll(body);
+            }
+        } catch (IOException e) {
+            LOGGER.error("An error occurred while retrieving saves from server: {}", e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
 
         return saves;
     }
 
-    public CompletableFuture<UploadResponseDTO> uploadData(SaveDTO save) throws JsonProcessingException {
+    public CompletableFuture<Optional<AssetManifest>> getMissingAssets(AssetManifest manifest) {
         try {
-            ResponseEntity<String> response = new RestTemplate().postForEntity(this.properties.getServerUrl() + "/api/save", save, String.class);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(this.properties.getServerUrl() + "/api/assets/manifest"))
+                                             .timeout(this.properties.getSavesTimeout())
+                                             .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                             .POST(HttpRequest.BodyPublishers.ofByteArray(this.objectMapper.writeValueAsBytes(manifest)))
+                                             .build();
+
+            return this.httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+                if (!isSuccessful(response)) {
+                    LOGGER.info("Server did not answer assets manifest ({}), generating all assets", response.statusCode());
+                    return Optional.<AssetManifest>empty();
+                }
+
+                try {
+                    AssetManifest missing = this.objectMapper.readValue(response.body(), AssetManifest.class);
+                    //Missing sets are omitted when empty
+                    return Optional.of(new AssetManifest(Objects.requireNonNullElse(missing.countries(), Set.of()),
+                                                         Objects.requireNonNullElse(missing.religions(), Set.of()),
+                                                         Objects.requireNonNullElse(missing.tradeGoods(), Set.of()),
+                                                         Objects.requireNonNullElse(missing.estates(), Set.of())));
+                } catch (IOException e) {
+                    LOGGER.warn("Could not read assets manifest response: {}", e.getMessage());
+                    return Optional.<AssetManifest>empty();
+                }
+            }).exceptionally(throwable -> {
+                LOGGER.warn("Could not send assets manifest: {}", throwable.getMessage());
+                return Optional.empty();
+            });
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+    }
+
+    //The digest of the data the server received is set once it has been written
+    public CompletableFuture<UploadResponseDTO> uploadData(SaveDTO save, String idempotencyKey, Path spool, AtomicReference<String> digest) {
+        return uploadData(save, idempotencyKey, spool, digest, this.dataFormat, this.dataEncoding);
+    }
+
+    private CompletableFuture<UploadResponseDTO> uploadData(SaveDTO save, String idempotencyKey, Path spool, AtomicReference<String> digest,
+                                                            UploadFormat format, UploadEncoding encoding) {
+        AtomicBoolean spooled = new AtomicBoolean(false);
+
+        return retry("data", () -> sendData(save, format, encoding, idempotencyKey, spool, spooled, digest))
+                .thenCompose(response -> {
+                    //Only this upload falls back, a validation error of the server also answers a bad request but with an error body
+                    if (HttpStatus.UNSUPPORTED_MEDIA_TYPE.value() == response.statusCode()
+                        || (HttpStatus.BAD_REQUEST.value() == response.statusCode() && !isErrorObject(response))) {
+                        if (!UploadFormat.JSON.equals(format)) {
+                            LOGGER.warn("Server does not accept {} data ({}), sending it as json", format, response.statusCode());
+
+                            return uploadData(save, idempotencyKey, spool, digest, UploadFormat.JSON, encoding);
+                        } else if (!UploadEncoding.IDENTITY.equals(encoding)) {
+                            LOGGER.warn("Server does not accept {} encoded data ({}), sending it uncompressed", encoding, response.statusCode());
+
+                            return uploadData(save, idempotencyKey, spool, digest, format, UploadEncoding.IDENTITY);
+                        }
+                    }
+
+                    if (!isSuccessful(response)) {
+                        return CompletableFuture.failedFuture(serverException(response));
+                    }
+
+                    try {
+                        return CompletableFuture.completedFuture(this.objectMapper.readValue(response.body(), UploadResponseDTO.class));
+                    } catch (IOException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                });
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendData(SaveDTO save, UploadFormat format, UploadEncoding encoding, String idempotencyKey, Path spool,
+                                                             AtomicBoolean spooled, AtomicReference<String> digest) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(this.properties.getServerUrl() + "/api/save"))
+                                                 .timeout(this.properties.getDataTimeout())
+                                                 .header(HttpHeaders.CONTENT_TYPE, format.mediaType.toString());
+
+        if (encoding.contentEncoding != null) {
+            request.header(HttpHeaders.CONTENT_ENCODING, encoding.contentEncoding);
+        }
 
-            if (!response.getStatusCode().is2xxSuccessful()) {
-                return CompletableFuture.failedFuture(new ServerException(this.objectMapper.readValue(response.getBody(), ErrorObject.class).getError()));
+        if (idempotencyKey != null) {
+            request.header(IDEMPOTENCY_KEY, idempotencyKey);
+        }
+
+        //A previous attempt fully wrote the data, only resend it
+        if (spooled.get()) {
+            try {
+                return this.httpClient.sendAsync(request.POST(HttpRequest.BodyPublishers.ofFile(spool)).build(), HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                spooled.set(false);
             }
+        }
+
+        //Serialized once, directly into the request body and the spool file
+        PipedInputStream body = new PipedInputStream(BUFFER_SIZE);
+        CompletableFuture<Void> writing;
+
+        try {
+            PipedOutputStream pipe = new PipedOutputStream(body);
+            writing = CompletableFuture.runAsync(() -> {
+                long start = System.currentTimeMillis();
+
+                try (CountingOutputStream outputStream = new CountingOutputStream(new TeeOutputStream(pipe, Files.newOutputStream(spool)))) {
+                    digest.set(writeData(save, format, encoding, outputStream));
+                    spooled.set(true);
+
+                    LOGGER.info("Sent {} bytes of {} data with {} encoding in {}ms", outputStream.getByteCount(), format, encoding,
+                                System.currentTimeMillis() - start);
+                } catch (IOException e) {
+                    IOUtils.closeQuietly(pipe);
+                    throw new UncheckedIOException(e);
+                }
+            }, this.executor);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return this.httpClient.sendAsync(request.POST(HttpRequest.BodyPublishers.ofInputStream(() -> body)).build(), HttpResponse.BodyHandlers.ofString())
+                              .whenComplete((response, throwable) -> IOUtils.closeQuietly(body)) //Unblocks the writer if the request failed early
+                              .thenCompose(response -> isSuccessful(response) ? writing.thenApply(unused -> response)
+                                                                              : CompletableFuture.completedFuture(response));
+    }
+
+    //Closes the output stream, also used by the benchmark so it measures what is sent
+    //Returns the digest of the uncompressed data, computed while it is written
+    public String writeData(SaveDTO save, UploadFormat format, UploadEncoding encoding, OutputStream outputStream) throws IOException {
+        ObjectMapper mapper = UploadFormat.SMILE.equals(format) ? this.smileObjectMapper : this.objectMapper;
+        MessageDigest md;
+
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(new DigestOutputStream(getDataOutputStream(outputStream, encoding), md))) {
+            mapper.writeValue(generator, save);
+        }
+
+        return Constants.bytesToHex(md.digest());
+    }
+
+    private OutputStream getDataOutputStream(OutputStream body, UploadEncoding encoding) throws IOException {
+        OutputStream outputStream = switch (encoding) {
+            case GZIP -> new GZIPOutputStream(body, BUFFER_SIZE);
+            case ZSTD -> new ZstdOutputStream(body);
+            case IDENTITY -> body;
+        };
+
+        if (this.properties.getDataDumpFile() == null) {
+            return outputStream;
+        }
+
+        //Dump the uncompressed data
+        FileUtils.forceMkdirParent(this.properties.getDataDumpFile().toFile());
+
+        return new TeeOutputStream(outputStream, Files.newOutputStream(this.properties.getDataDumpFile()));
+    }
 
-            return CompletableFuture.completedFuture(this.objectMapper.readValue(response.getBody(), UploadResponseDTO.class));
-        } catch (HttpClientErrorException e) {
-            return CompletableFuture.failedFuture(new ServerException(this.objectMapper.readValue(e.getResponseBodyAsString(), ErrorObject.class).getError()));
+    public CompletableFuture<Boolean> uploadAssets(Map<String, Path> assets, String id) {
+        List<Map.Entry<String, Path>> files = new ArrayList<>(assets.entrySet());
+        int nbParts = Math.max(1, Math.min(this.properties.getAssetsUploadParts(), files.size()));
+
+        if (files.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
         }
+
+        List<CompletableFuture<Boolean>> parts = ListUtils.partition(files, (files.size() + nbParts - 1) / nbParts)
+                                                          .stream()
+                                                          .map(part -> uploadAssetsPart(part, id))
+                                                          .toList();
+
+        return CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new)).thenApply(unused -> true);
     }
 
-    public CompletableFuture<Boolean> uploadAssets(List<Path> assets, Path root, String id) throws IOException {
-        Path zip = root.resolve("assets.zip");
+    private CompletableFuture<Boolean> uploadAssetsPart(List<Map.Entry<String, Path>> assets, String id) {
+        String boundary = UUID.randomUUID().toString();
+        Set<InputStream> zips = ConcurrentHashMap.newKeySet();
+        AtomicReference<CompletableFuture<Void>> writing = new AtomicReference<>(CompletableFuture.completedFuture(null));
+        HttpRequest request;
+
+        try {
+            request = HttpRequest.newBuilder(URI.create(this.properties.getServerUrl() + "/api/data"))
+                                 .timeout(this.properties.getAssetsTimeout())
+                                 .header(HttpHeaders.CONTENT_TYPE, MediaType.MULTIPART_FORM_DATA_VALUE + ";boundary=" + boundary)
+                                 .header(IDEMPOTENCY_KEY, id + "-assets-" + assets.hashCode())
+                                 .POST(HttpRequest.BodyPublishers.concat(
+                                         HttpRequest.BodyPublishers.ofString(partHeader(boundary, "assets", "assets.zip", "application/zip")),
+                                         HttpRequest.BodyPublishers.ofInputStream(() -> {
+                                             CompletableFuture<Void> zipWriting = new CompletableFuture<>();
+                                             InputStream zip = zipAssets(assets, zipWriting);
+                                             zips.add(zip);
+                                             writing.set(zipWriting);
+                                             return zip;
+                                         }),
+                                         HttpRequest.BodyPublishers.ofString("\r\n" + partHeader(boundary, "data", null, MediaType.APPLICATION_JSON_VALUE)),
+                                         HttpRequest.BodyPublishers.ofByteArray(
+                                                 this.objectMapper.writeValueAsBytes(new DataAssetDTO(OsaSaveExtractorApplication.ID, id))),
+                                         HttpRequest.BodyPublishers.ofString("\r\n--" + boundary + "--\r\n")))
+                                 .build();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-        ZipUtils.zipFolder(root, zip, assets::contains);
+        return retry("assets", () -> this.httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                                                    .whenComplete((response, throwable) -> zips.forEach(IOUtils::closeQuietly)))
+                .thenCompose(response -> {
+                    if (!isSuccessful(response)) {
+                        return CompletableFuture.failedFuture(serverException(response));
+                    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+                    //Only the last attempt matters, the previous ones failed because their body was closed
+                    return writing.get().thenApply(unused -> true);
+                });
+    }
 
-        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        body.add("assets", new FileSystemResource(zip));
-        body.add("data", new DataAssetDTO(OsaSaveExtractorApplication.ID, id));
+    //A zip that could not be fully written fails the request body instead of ending it as a valid truncated zip
+    private InputStream zipAssets(List<Map.Entry<String, Path>> assets, CompletableFuture<Void> writing) {
+        PipedInputStream zip = new PipedInputStream(BUFFER_SIZE);
+        PipedOutputStream pipe;
 
         try {
-            ResponseEntity<String> response = this.restTemplate.postForEntity(this.properties.getServerUrl() + "/api/data",
-                                                                              new HttpEntity<>(body, headers), String.class);
+            pipe = new PipedOutputStream(zip);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
 
-            if (!response.getStatusCode().is2xxSuccessful()) {
-                return CompletableFuture.failedFuture(new ServerException(this.objectMapper.readValue(response.getBody(), ErrorObject.class).getError()));
+        this.executor.execute(() -> {
+            //Images are already compressed, store them with their crc computed beforehand
+            ZipOutputStream outputStream = new ZipOutputStream(pipe);
+
+            try {
+                for (Map.Entry<String, Path> asset : assets) {
+                    byte[] bytes = Files.readAllBytes(asset.getValue());
+                    CRC32 crc = new CRC32();
+                    crc.update(bytes);
+
+                    ZipEntry entry = new ZipEntry(asset.getKey());
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(bytes.length);
+                    entry.setCompressedSize(bytes.length);
+                    entry.setCrc(crc.getValue());
+
+                    outputStream.putNextEntry(entry);
+                    outputStream.write(bytes);
+                    outputStream.closeEntry();
+                }
+
+                outputStream.close();
+                writing.complete(null);
+            } catch (Exception e) {
+                LOGGER.warn("Could not stream assets: {}", e.getMessage());
+                //Failed before the pipe is closed so the reader never sees a clean end
+                writing.completeExceptionally(e);
+                IOUtils.closeQuietly(pipe);
             }
+        });
 
-            return CompletableFuture.completedFuture(true);
-        } catch (HttpClientErrorException e) {
-            return CompletableFuture.failedFuture(new ServerException(this.objectMapper.readValue(e.getResponseBodyAsString(), ErrorObject.class).getError()));
+        return new FilterInputStream(zip) {
+            @Override
+            public int read() throws IOException {
+                return checkEnd(super.read());
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return checkEnd(super.read(b, off, len));
+            }
+
+            private int checkEnd(int read) throws IOException {
+                if (read < 0 && writing.isCompletedExceptionally()) {
+                    throw new IOException("Could not stream assets", writing.handle((unused, throwable) -> throwable).join());
+                }
+
+                return read;
+            }
+        };
+    }
+
+    private CompletableFuture<HttpResponse<String>> retry(String name, Supplier<CompletableFuture<HttpResponse<String>>> call) {
+        return retry(name, call, 1);
+    }
+
+    private CompletableFuture<HttpResponse<String>> retry(String name, Supplier<CompletableFuture<HttpResponse<String>>> call, int attempt) {
+        return call.get().handle((response, throwable) -> {
+            if (attempt >= this.properties.getRetryMaxAttempts() || !(throwable != null ? isRetryable(throwable) : isRetryable(response))) {
+                return throwable != null ? CompletableFuture.<HttpResponse<String>>failedFuture(throwable) : CompletableFuture.completedFuture(response);
+            }
+
+            long delay = backoff(attempt);
+            LOGGER.warn("Could not send {} (attempt {}/{}): {}, retrying in {}ms", name, attempt, this.properties.getRetryMaxAttempts(),
+                        throwable != null ? throwable.getMessage() : response.statusCode(), delay);
+
+            return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                                    .thenCompose(unused -> retry(name, call, attempt + 1));
+        }).thenCompose(Function.identity());
+    }
+
+    private long backoff(int attempt) {
+        long delay = Math.min(this.properties.getRetryMaxDelay().toMillis(), this.properties.getRetryInitialDelay().toMillis() << Math.min(attempt - 1, 20));
+
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1); //Jitter so that clients do not retry all at once
+    }
+
+    private boolean isRetryable(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+
+        return cause instanceof IOException || cause instanceof UncheckedIOException;
+    }
+
+    private boolean isRetryable(HttpResponse<?> response) {
+        return HttpStatus.REQUEST_TIMEOUT.value() == response.statusCode() || HttpStatus.TOO_MANY_REQUESTS.value() == response.statusCode()
+               || HttpStatus.Series.SERVER_ERROR.equals(HttpStatus.Series.resolve(response.statusCode()));
+    }
+
+    private String partHeader(String boundary, String name, String filename, String contentType) {
+        return "--" + boundary + "\r\n"
+               + "Content-Disposition: form-data; name=\"" + name + "\"" + (filename == null ? "" : "; filename=\"" + filename + "\"") + "\r\n"
+               + "Content-Type: " + contentType + "\r\n\r\n";
+    }
+
+    private boolean isSuccessful(HttpResponse<?> response) {
+        return HttpStatus.Series.SUCCESSFUL.equals(HttpStatus.Series.resolve(response.statusCode()));
+    }
+
+    private boolean isErrorObject(HttpResponse<String> response) {
+        try {
+            return this.objectMapper.readValue(response.body(), ErrorObject.class).getError() != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private ServerException serverException(HttpResponse<String> response) {
+        try {
+            return new ServerException(this.objectMapper.readValue(response.body(), ErrorObject.class).getError());
+        } catch (IOException e) {
+            LOGGER.error("Server responded {}: {}", response.statusCode(), response.body());
+            return new ServerException(null);
         }
     }
 }
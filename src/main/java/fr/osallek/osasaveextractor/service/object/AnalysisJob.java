@@ -0,0 +1,9 @@
+package fr.osallek.osasaveextractor.service.object;
+
+import fr.osallek.osasaveextractor.service.object.server.UploadResponseDTO;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public record AnalysisJob(Path save, List<String> mods, ProgressState state, CompletableFuture<UploadResponseDTO> result) {
+}
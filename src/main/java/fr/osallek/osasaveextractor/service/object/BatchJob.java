@@ -0,0 +1,12 @@
+package fr.osallek.osasaveextractor.service.object;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public record BatchJob(UUID id, List<AnalysisJob> jobs, CompletableFuture<Void> completion) {
+
+    public int getProgress() {
+        return (int) this.jobs.stream().mapToInt(job -> job.state().getProgress()).average().orElse(0);
+    }
+}
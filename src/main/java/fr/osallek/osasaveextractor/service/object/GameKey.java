@@ -0,0 +1,7 @@
+package fr.osallek.osasaveextractor.service.object;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public record GameKey(Path installationFolder, List<String> mods, String fingerprint) {
+}
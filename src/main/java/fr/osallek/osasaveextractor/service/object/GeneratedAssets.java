@@ -0,0 +1,6 @@
+package fr.osallek.osasaveextractor.service.object;
+
+import java.util.Map;
+
+public record GeneratedAssets(Map<String, String> tradeGoods, Map<String, String> religions, Map<String, String> estates, Map<String, String> countries) {
+}
@@ -0,0 +1,9 @@
+package fr.osallek.osasaveextractor.service.object;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+
+//Date and ironman are null when they could not be read from the header, like for binary saves
+public record SaveMetadata(Path path, String name, long size, Instant lastModified, LocalDate date, Boolean ironman) {
+}
@@ -0,0 +1,19 @@
+package fr.osallek.osasaveextractor.service.object;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public record UploadIndex(String digest, Map<Integer, HistoryIndex> provinces, Map<String, CountryIndex> countries) {
+
+    public UploadIndex withDigest(String digest) {
+        return new UploadIndex(digest, this.provinces, this.countries);
+    }
+
+    //Entries before the last date of a history, the ones of the last date may still change in the next save
+    public record HistoryIndex(int before, LocalDate last) {
+    }
+
+    //Last year of each statistics block, it may still change in the next save
+    public record CountryIndex(HistoryIndex history, Map<String, Integer> statistics) {
+    }
+}
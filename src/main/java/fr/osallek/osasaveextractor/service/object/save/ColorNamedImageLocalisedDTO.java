@@ -9,8 +9,13 @@ public class ColorNamedImageLocalisedDTO extends NamedImageLocalisedDTO {
 
     private ColorDTO color;
 
-    public ColorNamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, Path image, String name, ColorDTO color) {
-        super(localisations, image, name);
+    public ColorNamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, LocalisationTable table, String name, ColorDTO color) {
+        super(localisations, table, name);
+        this.color = color;
+    }
+
+    public ColorNamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, LocalisationTable table, Path image, String name, ColorDTO color) {
+        super(localisations, table, image, name);
         this.color = color;
     }
 
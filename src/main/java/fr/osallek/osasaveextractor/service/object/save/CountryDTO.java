@@ -11,7 +11,6 @@ import fr.osallek.eu4parser.model.save.country.PowerProjection;
 import fr.osallek.eu4parser.model.save.country.PowerSpent;
 import fr.osallek.eu4parser.model.save.country.SaveCountry;
 import fr.osallek.eu4parser.model.save.diplomacy.DatableRelation;
-import fr.osallek.eu4parser.model.save.diplomacy.Diplomacy;
 import fr.osallek.eu4parser.model.save.diplomacy.Subsidies;
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -20,7 +19,6 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
-import java.util.SortedSet;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.apache.commons.collections4.CollectionUtils;
@@ -80,13 +78,13 @@ public class CountryDTO extends ImageLocalised {
 
     //    private final Missions countryMissions; //Todo completed
 
-    private final SortedMap<Integer, Integer> incomeStatistics;
+    private SortedMap<Integer, Integer> incomeStatistics;
 
-    private final SortedMap<Integer, Integer> nationSizeStatistics;
+    private SortedMap<Integer, Integer> nationSizeStatistics;
 
-    private final SortedMap<Integer, Integer> scoreStatistics;
+    private SortedMap<Integer, Integer> scoreStatistics;
 
-    private final SortedMap<Integer, Integer> inflationStatistics;
+    private SortedMap<Integer, Integer> inflationStatistics;
 
     private final List<String> alliances;
 
@@ -182,23 +180,22 @@ public class CountryDTO extends ImageLocalised {
 
     private final List<CountryHistoryDTO> history = new ArrayList<>();
 
+    //Number of entries of the history of the base save that precede this one in a delta upload
+    private Integer historyFrom;
+
     private final boolean alive;
 
     private final int nbInstitutions;
 
     private final Map<LocalDate, String> changedTag;
 
-    public CountryDTO(Save save, SaveCountry country, Diplomacy diplomacy, SortedSet<ProvinceDTO> provinces) {
-        super(save.getGame().getLocalisation(country.getTag()), country.getWritenTo() != null ? country.getWritenTo().toFile() : country.getFlagFile());
+    public CountryDTO(Save save, SaveCountry country, DiplomacyIndex diplomacy, ProvinceOwnerIndex ownerIndex, LocalisationTable table) {
+        super(save.getGame().getLocalisation(country.getTag()), table, country.getFlagFile()); //Custom flags are set once generated
         this.tag = country.getTag();
         this.customName = ClausewitzUtils.removeQuotes(StringUtils.firstNonBlank(country.getCustomName(), country.getName()));
         this.players = CollectionUtils.isEmpty(country.getPlayers()) ? null : country.getPlayers().stream().map(ClausewitzUtils::removeQuotes).toList();
-        this.dev = provinces.stream()
-                            .filter(p -> p.isOwnerAt(save.getDate(), this.tag))
-                            .mapToDouble(p -> NumbersUtils.doubleOrDefault(p.getBaseTax()) + NumbersUtils.doubleOrDefault(p.getBaseProduction())
-                                              + NumbersUtils.doubleOrDefault(p.getBaseManpower()))
-                            .sum();
-        this.nbProvince = (int) provinces.stream().filter(p -> p.isOwnerAt(save.getDate(), this.tag)).count();
+        this.dev = ownerIndex.getDev(this.tag);
+        this.nbProvince = ownerIndex.getNbProvinces(this.tag);
         this.greatPowerRank = country.getGreatPowerRank();
         this.flags = country.getFlags() == null ? null : country.getFlags().getAll();
         this.hiddenFlags = country.getHiddenFlags() == null ? null : country.getHiddenFlags().getAll();
@@ -228,109 +225,109 @@ public class CountryDTO extends ImageLocalised {
         this.inflationStatistics = country.getInflationStatistics();
 
         this.alliances = diplomacy.getAlliances()
+                                  .from(this.tag)
                                   .stream()
-                                  .filter(r -> r.getFirst().getTag().equals(this.tag))
                                   .map(DatableRelation::getSecond)
                                   .map(SaveCountry::getTag)
                                   .collect(Collectors.toList());
         this.alliances.addAll(diplomacy.getAlliances()
+                                       .to(this.tag)
                                        .stream()
-                                       .filter(r -> r.getSecond().getTag().equals(this.tag))
                                        .map(DatableRelation::getFirst)
                                        .map(SaveCountry::getTag)
                                        .toList());
         this.guarantees = diplomacy.getGuarantees()
+                                   .from(this.tag)
                                    .stream()
-                                   .filter(r -> r.getFirst().getTag().equals(this.tag))
                                    .map(DatableRelation::getSecond)
                                    .map(SaveCountry::getTag)
                                    .toList();
         this.guarantedBy = diplomacy.getGuarantees()
+                                    .to(this.tag)
                                     .stream()
-                                    .filter(r -> r.getSecond().getTag().equals(this.tag))
                                     .map(DatableRelation::getFirst)
                                     .map(SaveCountry::getTag)
                                     .toList();
         this.knowledgeSharing = diplomacy.getKnowledgeSharing()
+                                         .from(this.tag)
                                          .stream()
-                                         .filter(r -> r.getFirst().getTag().equals(this.tag))
                                          .findFirst()
                                          .map(DatableRelation::getSecond)
                                          .map(SaveCountry::getTag)
                                          .orElse(null);
         this.knowledgeSharingBy = diplomacy.getKnowledgeSharing()
+                                           .to(this.tag)
                                            .stream()
-                                           .filter(r -> r.getSecond().getTag().equals(this.tag))
                                            .findFirst()
                                            .map(DatableRelation::getSecond)
                                            .map(SaveCountry::getTag)
                                            .orElse(null);
         this.subsidies = diplomacy.getSubsidies()
+                                  .from(this.tag)
                                   .stream()
-                                  .filter(r -> r.getFirst().getTag().equals(this.tag))
                                   .collect(Collectors.toMap(s -> s.getSecond().getTag(), Subsidies::getAmount));
         this.subsidiesBy = diplomacy.getSubsidies()
+                                    .to(this.tag)
                                     .stream()
-                                    .filter(r -> r.getSecond().getTag().equals(this.tag))
                                     .collect(Collectors.toMap(s -> s.getFirst().getTag(), Subsidies::getAmount));
         this.royalMarriages = diplomacy.getRoyalMarriage()
+                                       .from(this.tag)
                                        .stream()
-                                       .filter(r -> r.getFirst().getTag().equals(this.tag))
                                        .map(DatableRelation::getSecond)
                                        .map(SaveCountry::getTag)
                                        .collect(Collectors.toList());
         this.royalMarriages.addAll(diplomacy.getRoyalMarriage()
+                                            .to(this.tag)
                                             .stream()
-                                            .filter(r -> r.getSecond().getTag().equals(this.tag))
                                             .map(DatableRelation::getFirst)
                                             .map(SaveCountry::getTag)
                                             .toList());
         this.supportIndependence = diplomacy.getSupportIndependence()
+                                            .from(this.tag)
                                             .stream()
-                                            .filter(r -> r.getFirst().getTag().equals(this.tag))
                                             .map(DatableRelation::getSecond)
                                             .map(SaveCountry::getTag)
                                             .toList();
         this.supportIndependenceBy = diplomacy.getSupportIndependence()
+                                              .to(this.tag)
                                               .stream()
-                                              .filter(r -> r.getSecond().getTag().equals(this.tag))
                                               .map(DatableRelation::getFirst)
                                               .map(SaveCountry::getTag)
                                               .toList();
         this.transferTradePowers = diplomacy.getTransferTradePowers()
+                                            .from(this.tag)
                                             .stream()
-                                            .filter(r -> r.getFirst().getTag().equals(this.tag))
                                             .map(DatableRelation::getSecond)
                                             .map(SaveCountry::getTag)
                                             .toList();
         this.transferTradePowersBy = diplomacy.getTransferTradePowers()
+                                              .to(this.tag)
                                               .stream()
-                                              .filter(r -> r.getSecond().getTag().equals(this.tag))
                                               .map(DatableRelation::getFirst)
                                               .map(SaveCountry::getTag)
                                               .toList();
         this.warReparations = diplomacy.getWarReparations()
+                                       .from(this.tag)
                                        .stream()
-                                       .filter(r -> r.getFirst().getTag().equals(this.tag))
                                        .map(DatableRelation::getSecond)
                                        .map(SaveCountry::getTag)
                                        .toList();
         this.warReparationsBy = diplomacy.getWarReparations()
+                                         .to(this.tag)
                                          .stream()
-                                         .filter(r -> r.getSecond().getTag().equals(this.tag))
                                          .findFirst()
                                          .map(DatableRelation::getFirst)
                                          .map(SaveCountry::getTag)
                                          .orElse(null);
         this.warnings = diplomacy.getWarnings()
+                                 .from(this.tag)
                                  .stream()
-                                 .filter(r -> r.getFirst().getTag().equals(this.tag))
                                  .map(DatableRelation::getSecond)
                                  .map(SaveCountry::getTag)
                                  .toList();
         this.warningsBy = diplomacy.getWarnings()
+                                   .to(this.tag)
                                    .stream()
-                                   .filter(r -> r.getSecond().getTag().equals(this.tag))
                                    .map(DatableRelation::getFirst)
                                    .map(SaveCountry::getTag)
                                    .toList();
@@ -515,18 +512,34 @@ public class CountryDTO extends ImageLocalised {
         return incomeStatistics;
     }
 
+    public void setIncomeStatistics(SortedMap<Integer, Integer> incomeStatistics) {
+        this.incomeStatistics = incomeStatistics;
+    }
+
     public SortedMap<Integer, Integer> getNationSizeStatistics() {
         return nationSizeStatistics;
     }
 
+    public void setNationSizeStatistics(SortedMap<Integer, Integer> nationSizeStatistics) {
+        this.nationSizeStatistics = nationSizeStatistics;
+    }
+
     public SortedMap<Integer, Integer> getScoreStatistics() {
         return scoreStatistics;
     }
 
+    public void setScoreStatistics(SortedMap<Integer, Integer> scoreStatistics) {
+        this.scoreStatistics = scoreStatistics;
+    }
+
     public SortedMap<Integer, Integer> getInflationStatistics() {
         return inflationStatistics;
     }
 
+    public void setInflationStatistics(SortedMap<Integer, Integer> inflationStatistics) {
+        this.inflationStatistics = inflationStatistics;
+    }
+
     public List<String> getAlliances() {
         return alliances;
     }
@@ -715,6 +728,14 @@ public class CountryDTO extends ImageLocalised {
         return history;
     }
 
+    public Integer getHistoryFrom() {
+        return historyFrom;
+    }
+
+    public void setHistoryFrom(Integer historyFrom) {
+        this.historyFrom = historyFrom;
+    }
+
     public boolean isAlive() {
         return alive;
     }
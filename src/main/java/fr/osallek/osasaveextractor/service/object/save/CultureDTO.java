@@ -12,8 +12,8 @@ public class CultureDTO extends Localised {
 
     private final ColorDTO color;
 
-    public CultureDTO(Save save, Culture culture) {
-        super(save.getGame().getLocalisation(culture.getName()));
+    public CultureDTO(Save save, Culture culture, LocalisationTable table) {
+        super(save.getGame().getLocalisation(culture.getName()), table);
         this.group = culture.getCultureGroup().getName();
         this.name = culture.getName();
         this.color = Constants.stringToColor(this.name);
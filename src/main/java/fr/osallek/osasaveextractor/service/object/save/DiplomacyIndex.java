@@ -0,0 +1,102 @@
+package fr.osallek.osasaveextractor.service.object.save;
+
+import fr.osallek.eu4parser.model.save.diplomacy.DatableRelation;
+import fr.osallek.eu4parser.model.save.diplomacy.Diplomacy;
+import fr.osallek.eu4parser.model.save.diplomacy.Subsidies;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class DiplomacyIndex {
+
+    private final Relations<? extends DatableRelation> alliances;
+
+    private final Relations<? extends DatableRelation> guarantees;
+
+    private final Relations<? extends DatableRelation> knowledgeSharing;
+
+    private final Relations<? extends Subsidies> subsidies;
+
+    private final Relations<? extends DatableRelation> royalMarriage;
+
+    private final Relations<? extends DatableRelation> supportIndependence;
+
+    private final Relations<? extends DatableRelation> transferTradePowers;
+
+    private final Relations<? extends DatableRelation> warReparations;
+
+    private final Relations<? extends DatableRelation> warnings;
+
+    public DiplomacyIndex(Diplomacy diplomacy) {
+        this.alliances = Relations.of(diplomacy.getAlliances());
+        this.guarantees = Relations.of(diplomacy.getGuarantees());
+        this.knowledgeSharing = Relations.of(diplomacy.getKnowledgeSharing());
+        this.subsidies = Relations.of(diplomacy.getSubsidies());
+        this.royalMarriage = Relations.of(diplomacy.getRoyalMarriage());
+        this.supportIndependence = Relations.of(diplomacy.getSupportIndependence());
+        this.transferTradePowers = Relations.of(diplomacy.getTransferTradePowers());
+        this.warReparations = Relations.of(diplomacy.getWarReparations());
+        this.warnings = Relations.of(diplomacy.getWarnings());
+    }
+
+    public Relations<? extends DatableRelation> getAlliances() {
+        return alliances;
+    }
+
+    public Relations<? extends DatableRelation> getGuarantees() {
+        return guarantees;
+    }
+
+    public Relations<? extends DatableRelation> getKnowledgeSharing() {
+        return knowledgeSharing;
+    }
+
+    public Relations<? extends Subsidies> getSubsidies() {
+        return subsidies;
+    }
+
+    public Relations<? extends DatableRelation> getRoyalMarriage() {
+        return royalMarriage;
+    }
+
+    public Relations<? extends DatableRelation> getSupportIndependence() {
+        return supportIndependence;
+    }
+
+    public Relations<? extends DatableRelation> getTransferTradePowers() {
+        return transferTradePowers;
+    }
+
+    public Relations<? extends DatableRelation> getWarReparations() {
+        return warReparations;
+    }
+
+    public Relations<? extends DatableRelation> getWarnings() {
+        return warnings;
+    }
+
+    public static class Relations<T extends DatableRelation> {
+
+        private final Map<String, List<T>> byFirst;
+
+        private final Map<String, List<T>> bySecond;
+
+        private Relations(Collection<T> relations) {
+            this.byFirst = relations.stream().collect(Collectors.groupingBy(r -> r.getFirst().getTag()));
+            this.bySecond = relations.stream().collect(Collectors.groupingBy(r -> r.getSecond().getTag()));
+        }
+
+        public static <T extends DatableRelation> Relations<T> of(Collection<T> relations) {
+            return new Relations<>(relations);
+        }
+
+        public List<T> from(String tag) {
+            return this.byFirst.getOrDefault(tag, List.of());
+        }
+
+        public List<T> to(String tag) {
+            return this.bySecond.getOrDefault(tag, List.of());
+        }
+    }
+}
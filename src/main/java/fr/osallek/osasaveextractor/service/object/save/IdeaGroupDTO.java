@@ -8,12 +8,12 @@ public class IdeaGroupDTO extends NamedImageLocalisedDTO {
 
     private List<NamedImageLocalisedDTO> ideas;
 
-    public IdeaGroupDTO(Save save, IdeaGroup ideaGroup) {
-        super(save.getGame().getLocalisation(ideaGroup.getName()), ideaGroup.getImage(), ideaGroup.getName());
+    public IdeaGroupDTO(Save save, IdeaGroup ideaGroup, LocalisationTable table) {
+        super(save.getGame().getLocalisation(ideaGroup.getName()), table, ideaGroup.getImage(), ideaGroup.getName());
         this.ideas = ideaGroup.getIdeas()
                               .entrySet()
                               .stream()
-                              .map(entry -> new NamedImageLocalisedDTO(save.getGame().getLocalisation(entry.getKey()),
+                              .map(entry -> new NamedImageLocalisedDTO(save.getGame().getLocalisation(entry.getKey()), table,
                                                                        entry.getValue().getImage(save.getGame()), entry.getKey()))
                               .toList();
     }
@@ -15,26 +15,26 @@ public class ImageLocalised extends Localised {
     public ImageLocalised() {
     }
 
-    public ImageLocalised(Map<Eu4Language, Localisation> localisations) {
-        super(localisations);
+    public ImageLocalised(Map<Eu4Language, Localisation> localisations, LocalisationTable table) {
+        super(localisations, table);
     }
 
     public ImageLocalised(String image) {
         this.image = image;
     }
 
-    public ImageLocalised(Map<Eu4Language, Localisation> localisations, String image) {
-        super(localisations);
+    public ImageLocalised(Map<Eu4Language, Localisation> localisations, LocalisationTable table, String image) {
+        super(localisations, table);
         this.image = image;
     }
 
-    public ImageLocalised(Map<Eu4Language, Localisation> localisations, File image) {
-        super(localisations);
+    public ImageLocalised(Map<Eu4Language, Localisation> localisations, LocalisationTable table, File image) {
+        super(localisations, table);
         Constants.getFileChecksum(image).ifPresent(this::setImage);
     }
 
-    public ImageLocalised(Map<Eu4Language, Localisation> localisations, Path image) {
-        super(localisations);
+    public ImageLocalised(Map<Eu4Language, Localisation> localisations, LocalisationTable table, Path image) {
+        super(localisations, table);
         Constants.getFileChecksum(image).ifPresent(this::setImage);
     }
 
@@ -7,8 +7,8 @@ public class InstitutionDTO extends NamedImageLocalisedDTO {
 
     private int origin;
 
-    public InstitutionDTO(Save save, Institution institution, int origin) {
-        super(save.getGame().getLocalisation(institution.getName()), institution.getImage(), institution.getName());
+    public InstitutionDTO(Save save, Institution institution, int origin, LocalisationTable table) {
+        super(save.getGame().getLocalisation(institution.getName()), table, institution.getImage(), institution.getName());
         this.origin = origin;
     }
 
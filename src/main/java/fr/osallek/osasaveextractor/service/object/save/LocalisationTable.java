@@ -0,0 +1,50 @@
+package fr.osallek.osasaveextractor.service.object.save;
+
+import fr.osallek.eu4parser.model.game.localisation.Eu4Language;
+import fr.osallek.eu4parser.model.game.localisation.Localisation;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.MapUtils;
+
+//Localisations of a save, the same ones are referenced by many objects so they are only kept once, by key
+public class LocalisationTable {
+
+    private final Set<Eu4Language> languages;
+
+    private final Map<String, Map<Eu4Language, String>> values = new ConcurrentHashMap<>();
+
+    public LocalisationTable(Set<Eu4Language> languages) {
+        this.languages = languages;
+    }
+
+    public String intern(Map<Eu4Language, Localisation> localisations) {
+        if (MapUtils.isEmpty(localisations)) {
+            return null;
+        }
+
+        String key = localisations.values().iterator().next().getKey();
+
+        if (key != null) {
+            this.values.computeIfAbsent(key, k -> localisations.entrySet()
+                                                               .stream()
+                                                               .filter(entry -> CollectionUtils.isEmpty(this.languages)
+                                                                                || this.languages.contains(entry.getKey()))
+                                                               .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().getValue())));
+        }
+
+        return key;
+    }
+
+    public Map<Eu4Language, String> get(String key) {
+        return key == null ? null : this.values.get(key);
+    }
+
+    public SortedMap<String, Map<Eu4Language, String>> getValues() {
+        return new TreeMap<>(this.values);
+    }
+}
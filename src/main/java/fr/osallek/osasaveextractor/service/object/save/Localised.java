@@ -2,22 +2,29 @@ package fr.osallek.osasaveextractor.service.object.save;
 
 import fr.osallek.eu4parser.model.game.localisation.Eu4Language;
 import fr.osallek.eu4parser.model.game.localisation.Localisation;
-import org.apache.commons.collections4.MapUtils;
 
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class Localised {
 
+    protected String localisationsKey;
+
     protected Map<Eu4Language, String> localisations;
 
     public Localised() {
     }
 
-    public Localised(Map<Eu4Language, Localisation> localisations) {
-        if (MapUtils.isNotEmpty(localisations)) {
-            this.localisations = localisations.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getValue()));
-        }
+    //Only the key is kept, the values are in the table of the save
+    public Localised(Map<Eu4Language, Localisation> localisations, LocalisationTable table) {
+        this.localisationsKey = table.intern(localisations);
+    }
+
+    public String getLocalisationsKey() {
+        return localisationsKey;
+    }
+
+    public void setLocalisationsKey(String localisationsKey) {
+        this.localisationsKey = localisationsKey;
     }
 
     public Map<Eu4Language, String> getLocalisations() {
@@ -15,17 +15,17 @@ public class NamedImageLocalisedDTO extends ImageLocalised {
         this.name = name;
     }
 
-    public NamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, String name) {
-        super(localisations);
+    public NamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, LocalisationTable table, String name) {
+        super(localisations, table);
         this.name = name;
     }
 
-    public NamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, File image) {
-        super(localisations, image);
+    public NamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, LocalisationTable table, File image) {
+        super(localisations, table, image);
     }
 
-    public NamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, Path image) {
-        super(localisations, image);
+    public NamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, LocalisationTable table, Path image) {
+        super(localisations, table, image);
     }
 
     public NamedImageLocalisedDTO(File image) {
@@ -41,18 +41,18 @@ public class NamedImageLocalisedDTO extends ImageLocalised {
         this.name = name;
     }
 
-    public NamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, String image, String name) {
-        super(localisations, image);
+    public NamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, LocalisationTable table, String image, String name) {
+        super(localisations, table, image);
         this.name = name;
     }
 
-    public NamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, File image, String name) {
-        super(localisations, image);
+    public NamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, LocalisationTable table, File image, String name) {
+        super(localisations, table, image);
         this.name = name;
     }
 
-    public NamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, Path image, String name) {
-        super(localisations, image);
+    public NamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, LocalisationTable table, Path image, String name) {
+        super(localisations, table, image);
         this.name = name;
     }
 
@@ -69,8 +69,8 @@ public class NamedImageLocalisedDTO extends ImageLocalised {
     public NamedImageLocalisedDTO() {
     }
 
-    public NamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations) {
-        super(localisations);
+    public NamedImageLocalisedDTO(Map<Eu4Language, Localisation> localisations, LocalisationTable table) {
+        super(localisations, table);
     }
 
     public String getName() {
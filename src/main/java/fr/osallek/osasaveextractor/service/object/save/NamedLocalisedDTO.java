@@ -12,8 +12,8 @@ public class NamedLocalisedDTO extends Localised {
         this.name = name;
     }
 
-    public NamedLocalisedDTO(Map<Eu4Language, Localisation> localisations, String name) {
-        super(localisations);
+    public NamedLocalisedDTO(Map<Eu4Language, Localisation> localisations, LocalisationTable table, String name) {
+        super(localisations, table);
         this.name = name;
     }
 
@@ -7,6 +7,8 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import java.util.function.Predicate;
 import org.apache.commons.lang3.StringUtils;
 
@@ -35,6 +37,11 @@ public class ProvinceDTO extends SimpleProvinceDTO {
 
     private final List<ProvinceHistoryDTO> history = new ArrayList<>();
 
+    //Number of entries of the history of the base save that precede this one in a delta upload
+    private Integer historyFrom;
+
+    private NavigableMap<LocalDate, String> ownerTimeline;
+
     public ProvinceDTO(SaveProvince province) {
         super(province);
         this.baseManpower = province.getBaseManpower();
@@ -92,6 +99,14 @@ public class ProvinceDTO extends SimpleProvinceDTO {
         return history;
     }
 
+    public Integer getHistoryFrom() {
+        return historyFrom;
+    }
+
+    public void setHistoryFrom(Integer historyFrom) {
+        this.historyFrom = historyFrom;
+    }
+
     public List<String> getBuildings() {
         return buildings;
     }
@@ -100,25 +115,64 @@ public class ProvinceDTO extends SimpleProvinceDTO {
         return colonySize;
     }
 
+    @JsonIgnore
+    public String getOwnerAt(LocalDate date) {
+        if (this.history.isEmpty()) {
+            return null;
+        }
+
+        Map.Entry<LocalDate, String> entry = getOwnerTimeline().floorEntry(date);
+
+        return entry == null ? this.history.get(0).getOwner() : entry.getValue();
+    }
+
     @JsonIgnore
     public boolean isOwnerAt(LocalDate date, String tag) {
-        String owner = this.history.get(0).getOwner();
-        for (ProvinceHistoryDTO h : this.history) {
-            if (h.getDate().isAfter(date)) {
-                break;
-            }
+        return tag.equals(getOwnerAt(date));
+    }
+
+    @JsonIgnore
+    public synchronized void addOwners(List<ProvinceHistoryDTO> owners) {
+        if (owners.isEmpty()) {
+            return;
+        }
 
-            if (StringUtils.isNotBlank(h.getOwner())) {
-                owner = h.getOwner();
+        List<ProvinceHistoryDTO> toAdd = new ArrayList<>(owners);
+        toAdd.sort(ProvinceHistoryDTO.COMPARATOR);
+
+        List<ProvinceHistoryDTO> merged = new ArrayList<>(this.history.size() + toAdd.size());
+        int i = 0;
+        int j = 0;
+
+        while (i < this.history.size() && j < toAdd.size()) {
+            if (ProvinceHistoryDTO.COMPARATOR.compare(toAdd.get(j), this.history.get(i)) < 0) {
+                merged.add(toAdd.get(j++));
+            } else {
+                merged.add(this.history.get(i++));
             }
         }
 
-        return tag.equals(owner);
+        merged.addAll(this.history.subList(i, this.history.size()));
+        merged.addAll(toAdd.subList(j, toAdd.size()));
+
+        this.history.clear();
+        this.history.addAll(merged);
+        this.ownerTimeline = null;
     }
 
-    @JsonIgnore
-    public synchronized void addOwner(LocalDate date, String tag) {
-        this.history.add(new ProvinceHistoryDTO(date, tag, tag));
-        this.history.sort(ProvinceHistoryDTO.COMPARATOR);
+    synchronized NavigableMap<LocalDate, String> getOwnerTimeline() {
+        if (this.ownerTimeline == null) {
+            NavigableMap<LocalDate, String> timeline = new TreeMap<>();
+
+            for (ProvinceHistoryDTO h : this.history) {
+                if (StringUtils.isNotBlank(h.getOwner())) {
+                    timeline.put(h.getDate(), h.getOwner());
+                }
+            }
+
+            this.ownerTimeline = timeline;
+        }
+
+        return this.ownerTimeline;
     }
 }
@@ -0,0 +1,43 @@
+package fr.osallek.osasaveextractor.service.object.save;
+
+import fr.osallek.eu4parser.common.NumbersUtils;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+
+public class ProvinceOwnerIndex {
+
+    private final Map<String, List<ProvinceDTO>> provinces = new HashMap<>();
+
+    private final Map<String, Double> dev = new HashMap<>();
+
+    public ProvinceOwnerIndex(Collection<ProvinceDTO> provinces, LocalDate date) {
+        for (ProvinceDTO province : provinces) {
+            String owner = province.getOwnerAt(date);
+
+            if (StringUtils.isBlank(owner)) {
+                continue;
+            }
+
+            this.provinces.computeIfAbsent(owner, s -> new ArrayList<>()).add(province);
+            this.dev.merge(owner, NumbersUtils.doubleOrDefault(province.getBaseTax()) + NumbersUtils.doubleOrDefault(province.getBaseProduction())
+                                  + NumbersUtils.doubleOrDefault(province.getBaseManpower()), Double::sum);
+        }
+    }
+
+    public List<ProvinceDTO> getProvinces(String tag) {
+        return this.provinces.getOrDefault(tag, List.of());
+    }
+
+    public double getDev(String tag) {
+        return this.dev.getOrDefault(tag, 0d);
+    }
+
+    public int getNbProvinces(String tag) {
+        return getProvinces(tag).size();
+    }
+}
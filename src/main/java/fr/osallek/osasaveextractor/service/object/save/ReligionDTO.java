@@ -26,8 +26,8 @@ public class ReligionDTO extends NamedImageLocalisedDTO {
 
     private final String defender;
 
-    public ReligionDTO(Save save, SaveReligion saveReligion, Religion religion) {
-        super(save.getGame().getLocalisation(saveReligion.getName()), religion.getWritenTo(), saveReligion.getName());
+    public ReligionDTO(Save save, SaveReligion saveReligion, Religion religion, LocalisationTable table) {
+        super(save.getGame().getLocalisation(saveReligion.getName()), table, saveReligion.getName());
         this.group = saveReligion.getReligionGroup().getName();
         this.color = religion.getColor() == null ? Constants.stringToColor(this.name) : new ColorDTO(religion.getColor());
         this.icon = religion.getIcon();
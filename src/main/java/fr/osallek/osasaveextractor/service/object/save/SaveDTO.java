@@ -1,32 +1,41 @@
 package fr.osallek.osasaveextractor.service.object.save;
 
-import fr.osallek.eu4parser.common.NumbersUtils;
 import fr.osallek.eu4parser.model.game.Religion;
+import fr.osallek.eu4parser.model.game.localisation.Eu4Language;
 import fr.osallek.eu4parser.model.save.Save;
 import fr.osallek.eu4parser.model.save.country.SaveCountry;
 import fr.osallek.eu4parser.model.save.province.SaveProvince;
 import fr.osallek.osasaveextractor.OsaSaveExtractorApplication;
 import fr.osallek.osasaveextractor.common.Constants;
+import fr.osallek.osasaveextractor.service.object.GeneratedAssets;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.DoubleConsumer;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
-import org.apache.commons.lang3.StringUtils;
 
 public class SaveDTO {
 
     private final String owner;
 
-    private final String previousSave;
+    private String previousSave;
+
+    private String baseSave;
+
+    private String baseDigest;
 
     private final String name;
 
@@ -84,9 +93,14 @@ public class SaveDTO {
 
     private final List<NamedImageLocalisedDTO> leaderPersonalities;
 
-    public SaveDTO(String previousSave, Save save, String provinceImage, String colorsImage, Map<String, Religion> religions, DoubleConsumer percentCountriesConsumer) {
+    private SortedMap<String, Map<Eu4Language, String>> localisations;
+
+    private final LocalisationTable localisationTable;
+
+    public SaveDTO(Save save, String provinceImage, String colorsImage, Map<String, Religion> religions, Set<Eu4Language> languages,
+                   DoubleConsumer percentCountriesConsumer) {
         this.owner = OsaSaveExtractorApplication.ID;
-        this.previousSave = previousSave;
+        this.localisationTable = new LocalisationTable(languages);
         this.provinceImage = provinceImage;
         this.colorsImage = colorsImage;
         this.name = save.getName();
@@ -109,6 +123,8 @@ public class SaveDTO {
         this.areas = save.getAreas().values().stream().map(AreaDTO::new).toList();
         this.advisors = save.getAdvisors().values().stream().map(AdvisorDTO::new).toList();
 
+        ProvinceOwnerIndex ownerIndex = new ProvinceOwnerIndex(this.provinces, this.date);
+        DiplomacyIndex diplomacyIndex = new DiplomacyIndex(save.getDiplomacy());
         AtomicInteger i = new AtomicInteger();
         List<SaveCountry> c = save.getCountries()
                                   .values()
@@ -124,42 +140,32 @@ public class SaveDTO {
                                   .toList();
         this.countries = c.parallelStream()
                           .map(country -> {
-                              CountryDTO countryDTO = new CountryDTO(save, country, save.getDiplomacy(), this.provinces);
+                              CountryDTO countryDTO = new CountryDTO(save, country, diplomacyIndex, ownerIndex, this.localisationTable);
                               i.getAndIncrement();
                               percentCountriesConsumer.accept((double) i.get() / c.size());
 
                               return countryDTO;
                           })
-                          .toList();
-
-        for (CountryDTO countryDTO : this.countries) { //Not in stream to prevent Concurrent modification
-            countryDTO.getHistory().stream().filter(history -> StringUtils.isNotBlank(history.getChangedTagFrom())).forEach(history -> {
-                this.provinces.stream()
-                              .filter(province -> province.isOwnerAt(history.getDate(), history.getChangedTagFrom()))
-                              .forEach(province -> province.addOwner(history.getDate(), countryDTO.getTag()));
-                this.provinces.stream() //Add owner when inheriting from decision
-                              .filter(province -> CollectionUtils.isNotEmpty(province.getHistory())
-                                                  && province.getHistory().stream().anyMatch(h -> h.getDate().equals(history.getDate())
-                                                                                                  && countryDTO.getTag().equals(h.getFakeOwner())))
-                              .forEach(province -> province.addOwner(history.getDate(), countryDTO.getTag()));
-
-                countryDTO.setDev(this.provinces.stream()
-                                                .filter(p -> p.isOwnerAt(save.getDate(), countryDTO.getTag()))
-                                                .mapToDouble(p -> NumbersUtils.doubleOrDefault(p.getBaseTax())
-                                                                  + NumbersUtils.doubleOrDefault(p.getBaseProduction())
-                                                                  + NumbersUtils.doubleOrDefault(p.getBaseManpower()))
-                                                .sum());
-                countryDTO.setNbProvince((int) provinces.stream().filter(p -> p.isOwnerAt(save.getDate(), countryDTO.getTag())).count());
+                          .collect(Collectors.toCollection(ArrayList::new));
+
+        Set<String> changedOwners = TagSuccessionResolver.resolve(this.provinces, this.countries, this.date);
+
+        if (!changedOwners.isEmpty()) {
+            ProvinceOwnerIndex changedOwnerIndex = new ProvinceOwnerIndex(this.provinces, this.date);
+
+            this.countries.stream().filter(countryDTO -> changedOwners.contains(countryDTO.getTag())).forEach(countryDTO -> {
+                countryDTO.setDev(changedOwnerIndex.getDev(countryDTO.getTag()));
+                countryDTO.setNbProvince(changedOwnerIndex.getNbProvinces(countryDTO.getTag()));
             });
         }
 
-        this.cultures = save.getGame().getCultures().stream().map(culture -> new CultureDTO(save, culture)).toList();
+        this.cultures = save.getGame().getCultures().stream().map(culture -> new CultureDTO(save, culture, this.localisationTable)).toList();
         this.religions = save.getReligions()
                              .getReligions()
                              .values()
                              .stream()
                              .filter(r -> religions.containsKey(r.getName()))
-                             .map(r -> new ReligionDTO(save, r, religions.get(r.getName())))
+                             .map(r -> new ReligionDTO(save, r, religions.get(r.getName()), this.localisationTable))
                              .toList();
         this.hre = new HreDTO(save.getHre());
         this.celestialEmpire = new CelestialEmpireDTO(save.getCelestialEmpire());
@@ -169,8 +175,8 @@ public class SaveDTO {
                                 .filter(institution -> save.getInstitutions().isAvailable(institution))
                                 .map(institution -> {
                                     SaveProvince origin = save.getInstitutions().getOrigin(institution);
-                                    return origin != null ? new InstitutionDTO(save, institution, save.getInstitutions().getOrigin(institution).getId())
-                                                          : new InstitutionDTO(save, institution, 0);
+                                    return origin != null ? new InstitutionDTO(save, institution, origin.getId(), this.localisationTable)
+                                                          : new InstitutionDTO(save, institution, 0, this.localisationTable);
                                 })
                                 .toList();
         this.diplomacy = new DiplomacyDTO(save.getDiplomacy());
@@ -178,19 +184,21 @@ public class SaveDTO {
                              .getBuildings()
                              .stream()
                              .map(building -> new NamedImageLocalisedDTO(save.getGame().getLocalisation("building_" + building.getName()),
+                                                                         this.localisationTable,
                                                                          building.getImage(), building.getName()))
                              .toList();
         this.advisorTypes = save.getGame()
                                 .getAdvisors()
                                 .stream()
-                                .map(advisor -> new NamedImageLocalisedDTO(save.getGame().getLocalisation(advisor.getName()), advisor.getDefaultImage(),
+                                .map(advisor -> new NamedImageLocalisedDTO(save.getGame().getLocalisation(advisor.getName()),
+                                                                           this.localisationTable, advisor.getDefaultImage(),
                                                                            advisor.getName()))
                                 .toList();
         this.tradeGoods = save.getGame()
                               .getTradeGoods()
                               .stream()
                               .map(tradeGood -> new ColorNamedImageLocalisedDTO(save.getGame().getLocalisation(tradeGood.getName()),
-                                                                                tradeGood.getWritenTo(), tradeGood.getName(),
+                                                                                this.localisationTable, tradeGood.getName(),
                                                                                 tradeGood.getColor() == null ? Constants.stringToColor(this.name) :
                                                                                 new ColorDTO(tradeGood.getColor())))
                               .toList();
@@ -203,7 +211,7 @@ public class SaveDTO {
                                      .map(s -> save.getGame().getEstate(s))
                                      .filter(Objects::nonNull)
                                      .map(estate -> new ColorNamedImageLocalisedDTO(save.getGame().getLocalisation(estate.getName()),
-                                                                                    estate.getWritenTo(), estate.getName(),
+                                                                                    this.localisationTable, estate.getName(),
                                                                                     estate.getColor() == null ? Constants.stringToColor(this.name) :
                                                                                     new ColorDTO(estate.getColor())))
                                      .toList();
@@ -217,6 +225,7 @@ public class SaveDTO {
                                               .map(s -> save.getGame().getEstatePrivilege(s))
                                               .filter(Objects::nonNull)
                                               .map(privilege -> new NamedImageLocalisedDTO(save.getGame().getLocalisation(privilege.getName()),
+                                                                                           this.localisationTable,
                                                                                            privilege.getImage(), privilege.getName()))
                                               .toList();
         this.subjectTypes = this.diplomacy.getDependencies()
@@ -225,7 +234,8 @@ public class SaveDTO {
                                           .distinct()
                                           .map(s -> save.getGame().getSubjectType(s))
                                           .filter(Objects::nonNull)
-                                          .map(type -> new NamedLocalisedDTO(save.getGame().getLocalisation(type.getName() + "_title"), type.getName()))
+                                          .map(type -> new NamedLocalisedDTO(save.getGame().getLocalisation(type.getName() + "_title"),
+                                                                             this.localisationTable, type.getName()))
                                           .toList();
         this.ideaGroups = this.countries.stream()
                                         .map(CountryDTO::getIdeaGroups)
@@ -235,7 +245,7 @@ public class SaveDTO {
                                         .distinct()
                                         .map(s -> save.getGame().getIdeaGroup(s))
                                         .filter(Objects::nonNull)
-                                        .map(group -> new IdeaGroupDTO(save, group))
+                                        .map(group -> new IdeaGroupDTO(save, group, this.localisationTable))
                                         .toList();
         this.personalities = this.countries.stream()
                                            .map(CountryDTO::getHistory)
@@ -249,6 +259,7 @@ public class SaveDTO {
                                            .map(s -> save.getGame().getRulerPersonality(s))
                                            .filter(Objects::nonNull)
                                            .map(personality -> new NamedImageLocalisedDTO(save.getGame().getLocalisation(personality.getName()),
+                                                                                          this.localisationTable,
                                                                                           personality.getImage(), personality.getName()))
                                            .toList();
         this.leaderPersonalities = this.countries.stream()
@@ -262,6 +273,7 @@ public class SaveDTO {
                                                  .map(s -> save.getGame().getLeaderPersonality(s))
                                                  .filter(Objects::nonNull)
                                                  .map(personality -> new NamedImageLocalisedDTO(save.getGame().getLocalisation(personality.getName()),
+                                                                                                this.localisationTable,
                                                                                                 personality.getModifiers().getImage(save.getGame()),
                                                                                                 personality.getName()))
                                                  .toList();
@@ -275,6 +287,10 @@ public class SaveDTO {
         return previousSave;
     }
 
+    public void setPreviousSave(String previousSave) {
+        this.previousSave = previousSave;
+    }
+
     public String getName() {
         return name;
     }
@@ -315,6 +331,63 @@ public class SaveDTO {
         return impassableProvinces;
     }
 
+    public String getBaseSave() {
+        return baseSave;
+    }
+
+    public String getBaseDigest() {
+        return baseDigest;
+    }
+
+    public void setDelta(String baseSave, String baseDigest) {
+        this.baseSave = baseSave;
+        this.baseDigest = baseDigest;
+    }
+
+    public void applyAssets(GeneratedAssets assets) {
+        this.countries.forEach(country -> Optional.ofNullable(assets.countries().get(country.getTag())).ifPresent(country::setImage));
+        this.religions.forEach(religion -> religion.setImage(assets.religions().get(religion.getName())));
+        this.tradeGoods.forEach(tradeGood -> tradeGood.setImage(assets.tradeGoods().get(tradeGood.getName())));
+        this.estates.forEach(estate -> estate.setImage(assets.estates().get(estate.getName())));
+    }
+
+    //Localisations are sent once in a table referenced by key, unless the server only reads them on each object
+    public void compactLocalisations(boolean shared) {
+        if (shared) {
+            this.localisations = this.localisationTable.getValues();
+            return;
+        }
+
+        for (Localised localised : getLocalised()) {
+            localised.setLocalisations(this.localisationTable.get(localised.getLocalisationsKey()));
+            localised.setLocalisationsKey(null);
+        }
+    }
+
+    private List<Localised> getLocalised() {
+        List<Localised> localised = new ArrayList<>();
+        localised.addAll(this.countries);
+        localised.addAll(this.cultures);
+        localised.addAll(this.religions);
+        localised.addAll(this.institutions);
+        localised.addAll(this.buildings);
+        localised.addAll(this.advisorTypes);
+        localised.addAll(this.tradeGoods);
+        localised.addAll(this.estates);
+        localised.addAll(this.estatePrivileges);
+        localised.addAll(this.subjectTypes);
+        localised.addAll(this.ideaGroups);
+        this.ideaGroups.stream().map(IdeaGroupDTO::getIdeas).filter(Objects::nonNull).forEach(localised::addAll);
+        localised.addAll(this.personalities);
+        localised.addAll(this.leaderPersonalities);
+
+        return localised;
+    }
+
+    public SortedMap<String, Map<Eu4Language, String>> getLocalisations() {
+        return localisations;
+    }
+
     public List<CountryDTO> getCountries() {
         return countries;
     }
@@ -0,0 +1,92 @@
+package fr.osallek.osasaveextractor.service.object.save;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+
+public final class TagSuccessionResolver {
+
+    private TagSuccessionResolver() {
+    }
+
+    public static Set<String> resolve(Collection<ProvinceDTO> provinces, Collection<CountryDTO> countries, LocalDate date) {
+        List<TagChange> changes = countries.stream()
+                                           .flatMap(country -> country.getHistory()
+                                                                      .stream()
+                                                                      .filter(history -> StringUtils.isNotBlank(history.getChangedTagFrom()))
+                                                                      .map(history -> new TagChange(history.getDate(), history.getChangedTagFrom(),
+                                                                                                    country.getTag())))
+                                           .sorted(Comparator.comparing(TagChange::date))
+                                           .toList();
+
+        if (changes.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<String> changedOwners = ConcurrentHashMap.newKeySet();
+        provinces.parallelStream().forEach(province -> {
+            List<ProvinceHistoryDTO> owners = resolve(province, changes);
+
+            if (owners.isEmpty()) {
+                return;
+            }
+
+            String previousOwner = province.getOwnerAt(date);
+            province.addOwners(owners);
+            String owner = province.getOwnerAt(date);
+
+            if (!Objects.equals(previousOwner, owner)) {
+                if (previousOwner != null) {
+                    changedOwners.add(previousOwner);
+                }
+
+                if (owner != null) {
+                    changedOwners.add(owner);
+                }
+            }
+        });
+
+        return changedOwners;
+    }
+
+    private static List<ProvinceHistoryDTO> resolve(ProvinceDTO province, List<TagChange> changes) {
+        if (province.getHistory().isEmpty()) {
+            return List.of();
+        }
+
+        String initialOwner = province.getHistory().get(0).getOwner();
+        NavigableMap<LocalDate, String> timeline = new TreeMap<>(province.getOwnerTimeline());
+        Map<LocalDate, Set<String>> fakeOwners = province.getHistory()
+                                                         .stream()
+                                                         .filter(history -> history.getFakeOwner() != null)
+                                                         .collect(Collectors.groupingBy(ProvinceHistoryDTO::getDate,
+                                                                                        Collectors.mapping(ProvinceHistoryDTO::getFakeOwner,
+                                                                                                           Collectors.toSet())));
+        List<ProvinceHistoryDTO> owners = new ArrayList<>();
+
+        for (TagChange change : changes) {
+            Map.Entry<LocalDate, String> entry = timeline.floorEntry(change.date());
+            String owner = entry == null ? initialOwner : entry.getValue();
+
+            if (change.from().equals(owner) || fakeOwners.getOrDefault(change.date(), Set.of()).contains(change.to())) { //Or inherited from decision
+                owners.add(new ProvinceHistoryDTO(change.date(), change.to(), change.to()));
+                timeline.put(change.date(), change.to());
+            }
+        }
+
+        return owners;
+    }
+
+    private record TagChange(LocalDate date, String from, String to) {
+    }
+}
@@ -0,0 +1,14 @@
+package fr.osallek.osasaveextractor.service.object.server;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.Set;
+import org.apache.commons.collections4.CollectionUtils;
+
+public record AssetManifest(Set<String> countries, Set<String> religions, Set<String> tradeGoods, Set<String> estates) {
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return CollectionUtils.isEmpty(this.countries) && CollectionUtils.isEmpty(this.religions) && CollectionUtils.isEmpty(this.tradeGoods)
+               && CollectionUtils.isEmpty(this.estates);
+    }
+}
@@ -0,0 +1,17 @@
+package fr.osallek.osasaveextractor.service.object.server;
+
+public enum UploadEncoding {
+    IDENTITY(null),
+    GZIP("gzip"),
+    ZSTD("zstd");
+
+    public final String contentEncoding;
+
+    UploadEncoding(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+}
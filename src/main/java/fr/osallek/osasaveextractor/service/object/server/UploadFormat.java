@@ -0,0 +1,18 @@
+package fr.osallek.osasaveextractor.service.object.server;
+
+import org.springframework.http.MediaType;
+
+public enum UploadFormat {
+    JSON(MediaType.APPLICATION_JSON),
+    SMILE(MediaType.valueOf("application/x-jackson-smile"));
+
+    public final MediaType mediaType;
+
+    UploadFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+}